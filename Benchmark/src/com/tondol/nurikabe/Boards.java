@@ -0,0 +1,93 @@
+package com.tondol.nurikabe;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+public class Boards {
+	/**
+	 * sampleN: 同梱の問題
+	 * latticeN: N×N の格子状の問題
+	 * partialN: latticeN の解から半分のマスを消した探索途中の盤面
+	 * blocksN: N×N の 6×6 の島を並べた、数字が 36 以上になる問題
+	 * partialblocksN: blocksN の解から半分のマスを消した探索途中の盤面
+	 */
+	static public Matrix get(String name) throws IOException {
+		if (name.startsWith("sample")) {
+			return readSample(name);
+		} else if (name.startsWith("lattice")) {
+			return lattice(Integer.parseInt(name.substring(7)), false);
+		} else if (name.startsWith("blocks")) {
+			return blocks(Integer.parseInt(name.substring(6)), 6, false);
+		} else if (name.startsWith("partialblocks")) {
+			return partial(blocks(Integer.parseInt(name.substring(13)), 6, true), 0.5, 1);
+		} else if (name.startsWith("partial")) {
+			return partial(lattice(Integer.parseInt(name.substring(7)), true), 0.5, 1);
+		} else {
+			throw new IllegalArgumentException("unknown board: " + name);
+		}
+	}
+	static public Matrix getInSearching(String name) throws IOException {
+		Matrix board = get(name);
+
+		// 問題そのものは初回の伝播を済ませた状態にする
+		if (name.startsWith("sample") || name.startsWith("lattice") || name.startsWith("blocks")) {
+			Nurikabe nurikabe = new Nurikabe(board);
+			nurikabe.fill();
+			board = nurikabe.getBoard();
+		}
+
+		return board;
+	}
+
+	static private Matrix readSample(String name) throws IOException {
+		String dir = System.getProperty("nurikabe.dir", ".");
+		InputStream in = new FileInputStream(dir + "/" + name + ".txt");
+
+		try {
+			return Utils.readNurikabe(in);
+		} finally {
+			in.close();
+		}
+	}
+	static private Matrix lattice(int n, boolean solved) {
+		// 3マスおきの黒い線で区切られた2×2の島を並べる
+		return blocks(n, 2, solved);
+	}
+	static private Matrix blocks(int n, int k, boolean solved) {
+		Matrix board = new Matrix(n, n);
+
+		// k+1マスおきの黒い線で区切られたk×kの島を並べる
+		for (int i=0;i<n;i++) {
+			for (int j=0;j<n;j++) {
+				if (i % (k + 1) == 0 || j % (k + 1) == 0) {
+					board.put(i, j, solved ? Nurikabe.B : Nurikabe.E);
+				} else if (i % (k + 1) == 1 && j % (k + 1) == 1) {
+					int h = Math.min(k, n - i);
+					int w = Math.min(k, n - j);
+					board.put(i, j, h * w);
+				} else {
+					board.put(i, j, solved ? Nurikabe.W : Nurikabe.E);
+				}
+			}
+		}
+
+		return board;
+	}
+	static private Matrix partial(Matrix board, double ratio, long seed) {
+		Random random = new Random(seed);
+
+		for (int i=0;i<board.getH();i++) {
+			for (int j=0;j<board.getW();j++) {
+				int value = board.get(i, j);
+				if ((value == Nurikabe.W || value == Nurikabe.B) &&
+						random.nextDouble() < ratio) {
+					board.put(i, j, Nurikabe.E);
+				}
+			}
+		}
+
+		return board;
+	}
+}
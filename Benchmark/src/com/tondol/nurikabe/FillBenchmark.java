@@ -0,0 +1,62 @@
+package com.tondol.nurikabe;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FillBenchmark {
+	@Param({"sample2", "sample3", "sample6", "lattice36", "lattice64"})
+	public String board;
+
+	private Matrix mBoard = null;
+	private Nurikabe mNurikabe = null;
+
+	@Setup
+	public void setup() throws IOException {
+		mBoard = Boards.get(board);
+	}
+	@Setup(Level.Invocation)
+	public void reset() {
+		// 規則は盤面を書き換えるので毎回問題から始める
+		mNurikabe = new Nurikabe(mBoard.clone());
+	}
+
+	@Benchmark
+	public Object fillNeighborCells() {
+		mNurikabe.fillNeighborCells();
+		return mNurikabe;
+	}
+	@Benchmark
+	public Object fillAreas() {
+		mNurikabe.fillAreas();
+		return mNurikabe;
+	}
+	@Benchmark
+	public Object fillIslands() {
+		mNurikabe.fillIslands();
+		return mNurikabe;
+	}
+	@Benchmark
+	public Object fill() {
+		mNurikabe.fill();
+		return mNurikabe;
+	}
+}
@@ -0,0 +1,48 @@
+package com.tondol.nurikabe;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroupBenchmark {
+	@Param({"sample2", "sample3", "sample6", "partial36", "partial64"})
+	public String board;
+
+	private Nurikabe mNurikabe = null;
+
+	@Setup
+	public void setup() throws IOException {
+		mNurikabe = new Nurikabe(Boards.getInSearching(board));
+	}
+
+	/**
+	 * 盤面は変えずにキャッシュだけ捨てて測る
+	 */
+	@Benchmark
+	public Object doGroup() {
+		mNurikabe.invalidate();
+		return mNurikabe.groupWhite();
+	}
+	@Benchmark
+	public boolean validateInSearching() {
+		mNurikabe.invalidate();
+		return mNurikabe.validateInSearching();
+	}
+}
@@ -0,0 +1,77 @@
+package com.tondol.nurikabe;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+	@Param({"sample3", "lattice128"})
+	public String board;
+
+	@Param({"100"})
+	public int copies;
+
+	private byte[] mBytes = null;
+
+	/**
+	 * 同じ問題を copies 個つなげた入力を読む
+	 */
+	@Setup
+	public void setup() throws IOException {
+		Matrix matrix = Boards.get(board);
+		StringBuilder sb = new StringBuilder();
+
+		for (int k=0;k<copies;k++) {
+			sb.append(String.format("#%d %d\r\n", matrix.getH(), matrix.getW()));
+			for (int i=0;i<matrix.getH();i++) {
+				for (int j=0;j<matrix.getW();j++) {
+					sb.append(Utils.valueToString(matrix.get(i, j)));
+				}
+				sb.append("\r\n");
+			}
+		}
+
+		mBytes = sb.toString().getBytes("US-ASCII");
+	}
+
+	@Benchmark
+	public int readLines() throws IOException {
+		BufferedReader br = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(mBytes)));
+		int count = 0;
+
+		while (Utils.readNurikabe(br) != null) {
+			count++;
+		}
+		return count;
+	}
+	@Benchmark
+	public int readBytes() throws IOException {
+		PuzzleReader reader = new PuzzleReader(new ByteArrayInputStream(mBytes));
+		int count = 0;
+
+		while (reader.read() != null) {
+			count++;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,67 @@
+package com.tondol.nurikabe;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScalingBenchmark {
+	@Param({"36", "64", "128", "256"})
+	public int size;
+
+	private Matrix mBoard = null;
+	private byte[] mBytes = null;
+	private Nurikabe mSearching = null;
+	private Nurikabe mNurikabe = null;
+
+	/**
+	 * 盤面の一辺を変えて、数字が 36 以上の問題を測る
+	 */
+	@Setup
+	public void setup() throws IOException {
+		mBoard = Boards.get("blocks" + size);
+		mSearching = new Nurikabe(Boards.getInSearching("partialblocks" + size));
+
+		// カンマ区切りの行で書き出したものを読む
+		String text = String.format("#%d %d\n%s\n", size, size, new Nurikabe(mBoard).toString());
+		mBytes = text.getBytes("US-ASCII");
+	}
+	@Setup(Level.Invocation)
+	public void reset() {
+		// 規則は盤面を書き換えるので毎回問題から始める
+		mNurikabe = new Nurikabe(mBoard.clone());
+	}
+
+	@Benchmark
+	public Object read() throws IOException {
+		return new PuzzleReader(new ByteArrayInputStream(mBytes)).read();
+	}
+	@Benchmark
+	public boolean validateInSearching() {
+		mSearching.invalidate();
+		return mSearching.validateInSearching();
+	}
+	@Benchmark
+	public Object fill() {
+		mNurikabe.fill();
+		return mNurikabe;
+	}
+}
@@ -0,0 +1,46 @@
+package com.tondol.nurikabe;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolveBenchmark {
+	// sample3 と大きな latticeN はまだ解き終わらないので除く
+	@Param({"sample1", "sample2", "sample4", "sample5", "sample6"})
+	public String board;
+
+	private Matrix mBoard = null;
+
+	@Setup
+	public void setup() throws IOException {
+		mBoard = Boards.get(board);
+	}
+
+	@Benchmark
+	public boolean solve() {
+		Nurikabe nurikabe = new Nurikabe(mBoard.clone());
+		return nurikabe.solve();
+	}
+	@Benchmark
+	public boolean solveInPlace() {
+		Nurikabe nurikabe = new Nurikabe(mBoard.clone());
+		return nurikabe.solveInPlace();
+	}
+}
@@ -0,0 +1,57 @@
+package com.tondol.nurikabe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class GoldenTest {
+	private String mName = null;
+
+	public GoldenTest(String name) {
+		mName = name;
+	}
+
+	@Parameters(name = "{0}")
+	public static Collection<Object[]> samples() {
+		// sample3 はまだ解けない
+		return Arrays.asList(new Object[][] {
+			{"sample1"}, {"sample2"}, {"sample4"}, {"sample5"}, {"sample6"},
+		});
+	}
+
+	private Nurikabe create() throws IOException {
+		return new Nurikabe(Puzzles.read(mName));
+	}
+
+	@Test
+	public void solve() throws IOException {
+		Nurikabe nurikabe = create();
+
+		assertTrue(nurikabe.solve());
+		assertEquals(Puzzles.read(mName + "_answer").toString(), nurikabe.getBoard().toString());
+	}
+	@Test
+	public void solveInPlace() throws IOException {
+		Nurikabe nurikabe = create();
+
+		assertTrue(nurikabe.solveInPlace());
+		assertEquals(Puzzles.read(mName + "_answer").toString(), nurikabe.getBoard().toString());
+	}
+	@Test
+	public void solveParallel() throws IOException {
+		Nurikabe nurikabe = create();
+
+		// 解が複数ある問題ではどの解が先に見つかるか決まらない
+		assertTrue(nurikabe.solveParallel(4));
+		assertTrue(nurikabe.validate());
+	}
+}
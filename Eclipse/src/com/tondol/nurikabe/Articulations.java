@@ -0,0 +1,111 @@
+package com.tondol.nurikabe;
+
+import java.util.Arrays;
+
+public class Articulations {
+	private int mW = 0;
+	private int mH = 0;
+	private int[] mDisc = null;
+	private int[] mLow = null;
+	private int[] mParent = null;
+	private int[] mBlack = null;
+	private int[] mDir = null;
+	private int[] mStack = null;
+
+	public Articulations(int w, int h) {
+		mW = w;
+		mH = h;
+		mDisc = new int[w * h];
+		mLow = new int[w * h];
+		mParent = new int[w * h];
+		mBlack = new int[w * h];
+		mDir = new int[w * h];
+		mStack = new int[w * h];
+	}
+
+	/**
+	 * Find
+	 */
+	private int neighbor(int index, int dir) {
+		final int i = index / mW;
+		final int j = index % mW;
+
+		switch (dir) {
+		case 0:
+			return i > 0 ? index - mW : -1;
+		case 1:
+			return j > 0 ? index - 1 : -1;
+		case 2:
+			return i < mH - 1 ? index + mW : -1;
+		default:
+			return j < mW - 1 ? index + 1 : -1;
+		}
+	}
+	public int find(Matrix board, int blacks, int[] cells) {
+		int start = -1;
+		int count = 0;
+		int time = 0;
+		int size = 0;
+
+		for (int index=0;index<mW*mH&&start<0;index++) {
+			if (board.get(index / mW, index % mW) == Nurikabe.B) {
+				start = index;
+			}
+		}
+		if (start < 0) {
+			return 0;
+		}
+
+		// 黒と空白のマスを最初の黒から深さ優先で辿る
+		Arrays.fill(mDisc, 0);
+		mDisc[start] = mLow[start] = ++time;
+		mParent[start] = -1;
+		mBlack[start] = 1;
+		mDir[start] = 0;
+		mStack[size++] = start;
+
+		while (size > 0) {
+			final int v = mStack[size - 1];
+
+			if (mDir[v] < 4) {
+				final int u = neighbor(v, mDir[v]++);
+				if (u < 0) {
+					continue;
+				}
+
+				final int value = board.get(u / mW, u % mW);
+				if (value != Nurikabe.B && value != Nurikabe.E) {
+					continue;
+				}
+				if (mDisc[u] == 0) {
+					mDisc[u] = mLow[u] = ++time;
+					mParent[u] = v;
+					mBlack[u] = value == Nurikabe.B ? 1 : 0;
+					mDir[u] = 0;
+					mStack[size++] = u;
+				} else if (u != mParent[v]) {
+					mLow[v] = Math.min(mLow[v], mDisc[u]);
+				}
+				continue;
+			}
+
+			size--;
+			final int p = mParent[v];
+			if (p < 0) {
+				continue;
+			}
+
+			mLow[p] = Math.min(mLow[p], mLow[v]);
+			mBlack[p] += mBlack[v];
+
+			// 取り除くと子の側の黒が根の黒から切り離される空白マス
+			if (mLow[v] >= mDisc[p] && mBlack[v] > 0 &&
+					board.get(p / mW, p % mW) == Nurikabe.E) {
+				cells[count++] = p;
+			}
+		}
+
+		// 黒が既に分断されていれば検証に任せる
+		return mBlack[start] == blacks ? count : 0;
+	}
+}
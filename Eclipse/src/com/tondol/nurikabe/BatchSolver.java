@@ -0,0 +1,239 @@
+package com.tondol.nurikabe;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class BatchSolver {
+	private int mThreads = 0;
+	private int mCapacity = 0;
+	private boolean mOrdered = true;
+	private long mTimeout = 0;
+	private long mBudget = 0;
+	private Strategy mStrategy = Strategies.TOP_LEFT;
+	private String mReport = null;
+	private SolutionCache mCache = null;
+
+	public BatchSolver(int threads) {
+		this(threads, threads * 2);
+	}
+	public BatchSolver(int threads, int capacity) {
+		mThreads = threads;
+		mCapacity = capacity;
+	}
+
+	public void setOrdered(boolean ordered) {
+		mOrdered = ordered;
+	}
+	public void setStrategy(Strategy strategy) {
+		mStrategy = strategy;
+	}
+	public void setLimits(long timeout, long budget) {
+		// 1問あたりのミリ秒とノード数、0 は制限なし
+		mTimeout = timeout;
+		mBudget = budget;
+	}
+	public void setCache(SolutionCache cache) {
+		mCache = cache;
+	}
+	public void setReport(String format) {
+		// null なら規則ごとの集計を取らない
+		mReport = format;
+	}
+
+	/**
+	 * Source,
+	 * Result
+	 */
+	private interface Source {
+		public Task next() throws IOException;
+	}
+	private static class Result {
+		String name;
+		String board;
+		int status;
+		long nodes;
+		long nanos;
+		String report;
+
+		@Override
+		public String toString() {
+			return String.format("%s: status=%s, nodes=%d, time=%dms\n%s%s",
+					name, SolveResult.STATUSES[status], nodes, nanos / 1000000, board,
+					report != null ? "\n" + report : "");
+		}
+	}
+
+	/**
+	 * Task
+	 */
+	private class Task implements Callable<Result> {
+		private String mName = null;
+		private Matrix mBoard = null;
+
+		public Task(String name, Matrix board) {
+			mName = name;
+			mBoard = board;
+		}
+
+		@Override
+		public Result call() {
+			Result result = new Result();
+			result.name = mName;
+
+			final Nurikabe nurikabe = new Nurikabe(mBoard);
+			nurikabe.setStrategy(mStrategy);
+			RuleProfiler profiler = new RuleProfiler();
+			if (mReport != null) {
+				nurikabe.addListener(profiler);
+			}
+			SolutionCache.Solver solver = new SolutionCache.Solver() {
+				@Override
+				public SolveResult solve() {
+					return nurikabe.solve(mTimeout, TimeUnit.MILLISECONDS, mBudget);
+				}
+			};
+
+			SolveResult solved = mCache != null ? mCache.solve(mBoard, solver) : solver.solve();
+			result.status = solved.getStatus();
+			result.nanos = solved.getNanos();
+			result.nodes = solved.getNodeCount();
+			result.board = solved.isCached() ? new Nurikabe(solved.getBoard()).toString() : nurikabe.toString();
+			if (mReport != null && !solved.isCached()) {
+				result.report = RuleProfiler.format(profiler, mReport, mName);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Solve
+	 */
+	public int solve(InputStream in, PrintStream out) throws IOException, InterruptedException {
+		final PuzzleReader reader = new PuzzleReader(in);
+
+		// 連結された問題を先頭から順に読む
+		return solve(new Source() {
+			private int mCount = 0;
+
+			@Override
+			public Task next() throws IOException {
+				Matrix board = reader.read();
+				if (board == null) {
+					return null;
+				}
+
+				mCount++;
+				return new Task("stdin:" + mCount, board);
+			}
+		}, out);
+	}
+	public int solve(File dir, PrintStream out) throws IOException, InterruptedException {
+		final File[] files = dir.listFiles();
+		if (files == null) {
+			throw new IOException("not a directory: " + dir);
+		}
+		Arrays.sort(files);
+
+		// ファイル名順に、各ファイルの問題を先頭から読む
+		return solve(new Source() {
+			private int mIndex = 0;
+			private int mCount = 0;
+			private PuzzleReader mReader = null;
+
+			@Override
+			public Task next() throws IOException {
+				while (true) {
+					if (mReader == null) {
+						while (mIndex < files.length &&
+								!(files[mIndex].isFile() && files[mIndex].getName().endsWith(".txt"))) {
+							mIndex++;
+						}
+						if (mIndex == files.length) {
+							return null;
+						}
+
+						mReader = new PuzzleReader(files[mIndex]);
+						mCount = 0;
+					}
+
+					Matrix board = mReader.read();
+					if (board != null) {
+						mCount++;
+						return new Task(files[mIndex].getName() + ":" + mCount, board);
+					}
+
+					mReader.close();
+					mReader = null;
+					mIndex++;
+				}
+			}
+		}, out);
+	}
+	private int solve(Source source, PrintStream out) throws IOException, InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(mThreads);
+		CompletionService<Result> completion = new ExecutorCompletionService<Result>(executor);
+		Queue<Future<Result>> pending = new ArrayDeque<Future<Result>>();
+		int count = 0;
+		int running = 0;
+
+		try {
+			Task task = null;
+			while ((task = source.next()) != null) {
+				// 解き終わるのを待ってから次を読む
+				if (running == mCapacity) {
+					print(mOrdered ? pending.poll() : completion.take(), out);
+					running--;
+				}
+
+				count++;
+				running++;
+				if (mOrdered) {
+					pending.add(executor.submit(task));
+
+					// 先頭から解き終わった分だけ出力する
+					while (!pending.isEmpty() && pending.peek().isDone()) {
+						print(pending.poll(), out);
+						running--;
+					}
+				} else {
+					completion.submit(task);
+
+					Future<Result> future = null;
+					while ((future = completion.poll()) != null) {
+						print(future, out);
+						running--;
+					}
+				}
+			}
+
+			while (running > 0) {
+				print(mOrdered ? pending.poll() : completion.take(), out);
+				running--;
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		return count;
+	}
+	private void print(Future<Result> future, PrintStream out) throws InterruptedException {
+		try {
+			out.println(future.get());
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+}
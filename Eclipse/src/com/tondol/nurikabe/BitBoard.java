@@ -0,0 +1,202 @@
+package com.tondol.nurikabe;
+
+import java.util.Arrays;
+
+public class BitBoard implements Cloneable {
+	private int mW = 0;
+	private int mH = 0;
+	private int mWords = 0;
+	private long[] mBlack = null;
+	private long[] mWhite = null;
+	private long[] mMask = null;
+	private long[] mClue = null;
+	private int[] mClueIndexes = null;
+	private int[] mClueValues = null;
+
+	public BitBoard(Matrix board) {
+		mW = board.getW();
+		mH = board.getH();
+		mWords = (mW + 63) >>> 6;
+		mBlack = new long[mH * mWords];
+		mWhite = new long[mH * mWords];
+		mMask = new long[mWords];
+		mClue = new long[mH * mWords];
+
+		// 各行の有効なビット
+		for (int k=0;k<mWords;k++) {
+			final int bits = Math.min(64, mW - (k << 6));
+			mMask[k] = bits == 64 ? -1L : (1L << bits) - 1;
+		}
+
+		int count = 0;
+		for (int i=0;i<mH;i++) {
+			for (int j=0;j<mW;j++) {
+				if (isNumber(board.get(i, j))) {
+					count++;
+				}
+			}
+		}
+
+		// 数字は疎な配列に添字順で持つ
+		mClueIndexes = new int[count];
+		mClueValues = new int[count];
+		count = 0;
+		for (int i=0;i<mH;i++) {
+			for (int j=0;j<mW;j++) {
+				final int value = board.get(i, j);
+				if (isNumber(value)) {
+					mClueIndexes[count] = i * mW + j;
+					mClueValues[count] = value;
+					mClue[offset(i, j)] |= bit(j);
+					count++;
+				}
+				put(i, j, value);
+			}
+		}
+	}
+	private BitBoard(BitBoard board) {
+		// 数字と行マスクは不変なので共有する
+		mW = board.mW;
+		mH = board.mH;
+		mWords = board.mWords;
+		mBlack = board.mBlack.clone();
+		mWhite = board.mWhite.clone();
+		mMask = board.mMask;
+		mClue = board.mClue;
+		mClueIndexes = board.mClueIndexes;
+		mClueValues = board.mClueValues;
+	}
+
+	public int getW() {
+		return mW;
+	}
+	public int getH() {
+		return mH;
+	}
+
+	/**
+	 * Cell
+	 */
+	private int offset(int i, int j) {
+		return i * mWords + (j >>> 6);
+	}
+	private long bit(int j) {
+		return 1L << (j & 63);
+	}
+	public int get(int i, int j) {
+		final int offset = offset(i, j);
+		final long bit = bit(j);
+
+		if ((mClue[offset] & bit) != 0) {
+			return mClueValues[Arrays.binarySearch(mClueIndexes, i * mW + j)];
+		} else if ((mWhite[offset] & bit) != 0) {
+			return Nurikabe.W;
+		} else if ((mBlack[offset] & bit) != 0) {
+			return Nurikabe.B;
+		} else {
+			return Nurikabe.E;
+		}
+	}
+	public void put(int i, int j, int value) {
+		final int offset = offset(i, j);
+		final long bit = bit(j);
+
+		mBlack[offset] &= ~bit;
+		mWhite[offset] &= ~bit;
+		if (value == Nurikabe.B) {
+			mBlack[offset] |= bit;
+		} else if (value == Nurikabe.W || isNumber(value)) {
+			mWhite[offset] |= bit;
+		}
+	}
+
+	/**
+	 * Check
+	 */
+	public int countEmptyCells() {
+		int count = 0;
+
+		for (int i=0;i<mH;i++) {
+			for (int k=0;k<mWords;k++) {
+				final int offset = i * mWords + k;
+				count += Long.bitCount(~(mBlack[offset] | mWhite[offset]) & mMask[k]);
+			}
+		}
+
+		return count;
+	}
+	public int countBlackCells() {
+		int count = 0;
+
+		for (int offset=0;offset<mH*mWords;offset++) {
+			count += Long.bitCount(mBlack[offset]);
+		}
+
+		return count;
+	}
+	public int findEmptyCell() {
+		for (int i=0;i<mH;i++) {
+			for (int k=0;k<mWords;k++) {
+				final int offset = i * mWords + k;
+				final long empty = ~(mBlack[offset] | mWhite[offset]) & mMask[k];
+				if (empty != 0) {
+					return i * mW + (k << 6) + Long.numberOfTrailingZeros(empty);
+				}
+			}
+		}
+
+		return -1;
+	}
+	public boolean contains2X2() {
+		for (int i=1;i<mH;i++) {
+			for (int k=0;k<mWords;k++) {
+				// 上下に続く黒を求め、さらに左右に続くものを探す
+				final long pair = mBlack[(i - 1) * mWords + k] & mBlack[i * mWords + k];
+				if ((pair & (pair >>> 1)) != 0) {
+					return true;
+				}
+				if (k < mWords - 1 && (pair >>> 63) != 0 &&
+						(mBlack[(i - 1) * mWords + k + 1] & mBlack[i * mWords + k + 1] & 1L) != 0) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Matrix
+	 */
+	public void copyTo(Matrix board) {
+		for (int i=0;i<mH;i++) {
+			for (int j=0;j<mW;j++) {
+				board.put(i, j, get(i, j));
+			}
+		}
+	}
+	public Matrix toMatrix() {
+		Matrix board = new Matrix(mW, mH);
+		copyTo(board);
+		return board;
+	}
+
+	/**
+	 * Utilities
+	 */
+	private static boolean isNumber(int value) {
+		return value >= 1 && value != Nurikabe.B;
+	}
+
+	/**
+	 * Object
+	 */
+	@Override
+	public String toString() {
+		return toMatrix().toString();
+	}
+	@Override
+	protected BitBoard clone() {
+		return new BitBoard(this);
+	}
+}
@@ -0,0 +1,40 @@
+package com.tondol.nurikabe;
+
+import java.io.PrintStream;
+
+public class BoardDumper extends SearchAdapter {
+	private PrintStream mOut = null;
+	private long mInterval = 1;
+	private long mCount = 0;
+
+	public BoardDumper(PrintStream out) {
+		this(out, 1);
+	}
+	public BoardDumper(PrintStream out, long interval) {
+		mOut = out;
+		mInterval = interval;
+	}
+
+	private boolean sample() {
+		// interval回に1回だけ盤面を出力する
+		return mCount++ % mInterval == 0;
+	}
+
+	/**
+	 * SearchListener
+	 */
+	@Override
+	public void onBranch(Nurikabe nurikabe, int i, int j, int value, int depth) {
+		if (sample()) {
+			mOut.println(String.format("DEBUG[%d, %d]:", i, j));
+			mOut.println(nurikabe.toString());
+		}
+	}
+	@Override
+	public void onContradiction(Nurikabe nurikabe, int rule) {
+		if (rule == RULE_FINAL && sample()) {
+			mOut.println("NONE:");
+			mOut.println(nurikabe.toString());
+		}
+	}
+}
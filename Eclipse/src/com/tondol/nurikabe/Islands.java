@@ -0,0 +1,396 @@
+package com.tondol.nurikabe;
+
+import java.util.Arrays;
+
+public class Islands {
+	private static final int MAX_SIZE = 32;
+
+	private int mW = 0;
+	private int mH = 0;
+	private int mLimit = 0;
+	private int mCount = 0;
+	private int[] mClues = null;
+	private int[] mSizes = null;
+	private int[][] mCells = null;
+	private int[][] mOrder = null;
+	private int[] mTotals = null;
+	private int[] mAlive = null;
+	private boolean[] mCapped = null;
+	private int[] mPath = null;
+	private int[] mUntried = null;
+	private int[] mReached = null;
+	private int[] mMember = null;
+	private int[] mHits = null;
+	private int[] mHitStamp = null;
+	private int[] mCover = null;
+	private int[] mQueue = null;
+	private int[] mChanged = null;
+	private int mVersion = 0;
+	private int[] mPruned = null;
+	private int[] mBoxes = null;
+	private int[][] mUnions = null;
+	private int[] mUnionSizes = null;
+	private int mReachStamp = 0;
+	private int mStamp = 0;
+
+	public Islands(int w, int h, int limit) {
+		mW = w;
+		mH = h;
+		mLimit = limit;
+		mReached = new int[w * h];
+		mMember = new int[w * h];
+		mHits = new int[w * h];
+		mHitStamp = new int[w * h];
+		mCover = new int[w * h];
+		mQueue = new int[w * h];
+		mChanged = new int[w * h];
+	}
+
+	public int getClueCount() {
+		return mCount;
+	}
+	public int getCandidateCount(int k) {
+		return mTotals[k];
+	}
+	public boolean isCapped(int k) {
+		return mCapped[k];
+	}
+	public int getAlive(int k) {
+		return mAlive[k];
+	}
+	public void setAlive(int k, int alive) {
+		mAlive[k] = alive;
+	}
+	public void reset() {
+		// 候補の並びは入れ替わっていても、個数を戻せば元の集合になる
+		System.arraycopy(mTotals, 0, mAlive, 0, mCount);
+		Arrays.fill(mPruned, -1);
+	}
+	public void touch(int index) {
+		// 版が一周しそうなら、すべて絞り込み直すことにして数え直す
+		if (mVersion == Integer.MAX_VALUE) {
+			mVersion = 0;
+			Arrays.fill(mChanged, 0);
+			Arrays.fill(mPruned, -1);
+		}
+		mChanged[index] = ++mVersion;
+	}
+	public boolean isDead() {
+		for (int k=0;k<mCount;k++) {
+			if (mAlive[k] == 0 && !mCapped[k]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Enumerate
+	 */
+	private boolean isNumber(int value) {
+		return value >= 1 && value != Nurikabe.B;
+	}
+	private int neighbor(int index, int dir) {
+		final int i = index / mW;
+		final int j = index % mW;
+
+		switch (dir) {
+		case 0:
+			return i > 0 ? index - mW : -1;
+		case 1:
+			return j > 0 ? index - 1 : -1;
+		case 2:
+			return i < mH - 1 ? index + mW : -1;
+		default:
+			return j < mW - 1 ? index + 1 : -1;
+		}
+	}
+	private int get(Matrix board, int index) {
+		return board.get(index / mW, index % mW);
+	}
+	private boolean isAllowed(Matrix board, int index) {
+		final int value = get(board, index);
+		if (value == Nurikabe.B || isNumber(value)) {
+			return false;
+		}
+
+		// 他の数字に接するマスは島に入れられない
+		for (int dir=0;dir<4;dir++) {
+			final int next = neighbor(index, dir);
+			if (next >= 0 && isNumber(get(board, next)) && mReached[next] != mReachStamp) {
+				return false;
+			}
+		}
+		return true;
+	}
+	public void enumerate(Matrix board) {
+		mCount = 0;
+		for (int index=0;index<mW*mH;index++) {
+			if (isNumber(get(board, index))) {
+				mCount++;
+			}
+		}
+
+		mClues = new int[mCount];
+		mSizes = new int[mCount];
+		mCells = new int[mCount][];
+		mOrder = new int[mCount][];
+		mTotals = new int[mCount];
+		mAlive = new int[mCount];
+		mCapped = new boolean[mCount];
+		mPruned = new int[mCount];
+		mBoxes = new int[mCount * 4];
+		mUnions = new int[mCount][];
+		mUnionSizes = new int[mCount];
+		Arrays.fill(mPruned, -1);
+
+		int k = 0;
+		for (int index=0;index<mW*mH;index++) {
+			if (isNumber(get(board, index))) {
+				mClues[k] = index;
+				mSizes[k] = get(board, index);
+				enumerate(board, k);
+				k++;
+			}
+		}
+	}
+	private void enumerate(Matrix board, int k) {
+		final int n = mSizes[k];
+
+		// 大きすぎる数字は並べ尽くさずに諦める
+		if (n > MAX_SIZE) {
+			mCapped[k] = true;
+			return;
+		}
+
+		mCells[k] = new int[Math.min(mLimit, 64) * n];
+		mPath = new int[n];
+		mUntried = new int[n * (3 * n + 2) + 4];
+		mReachStamp++;
+		mReached[mClues[k]] = mReachStamp;
+		mUntried[0] = mClues[k];
+
+		if (!extend(board, k, 0, 1, 0)) {
+			mCapped[k] = true;
+			mCells[k] = null;
+			mTotals[k] = 0;
+			return;
+		}
+
+		mCells[k] = Arrays.copyOf(mCells[k], mTotals[k] * n);
+		mOrder[k] = new int[mTotals[k]];
+		for (int id=0;id<mTotals[k];id++) {
+			mOrder[k][id] = id;
+		}
+		mAlive[k] = mTotals[k];
+
+		// 候補とその周りを囲む範囲の外が変わっても候補は変わらない
+		int top = mH;
+		int left = mW;
+		int bottom = -1;
+		int right = -1;
+		for (int c=0;c<mCells[k].length;c++) {
+			top = Math.min(top, mCells[k][c] / mW);
+			left = Math.min(left, mCells[k][c] % mW);
+			bottom = Math.max(bottom, mCells[k][c] / mW);
+			right = Math.max(right, mCells[k][c] % mW);
+		}
+		mBoxes[k * 4] = Math.max(0, top - 1);
+		mBoxes[k * 4 + 1] = Math.max(0, left - 1);
+		mBoxes[k * 4 + 2] = Math.min(mH - 1, bottom + 1);
+		mBoxes[k * 4 + 3] = Math.min(mW - 1, right + 1);
+		mUnions[k] = new int[(bottom - top + 1) * (right - left + 1)];
+	}
+	private boolean isDirty(int k) {
+		if (mPruned[k] < 0) {
+			return true;
+		}
+		for (int i=mBoxes[k*4];i<=mBoxes[k*4+2];i++) {
+			for (int j=mBoxes[k*4+1];j<=mBoxes[k*4+3];j++) {
+				if (mChanged[i * mW + j] > mPruned[k]) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	private boolean extend(Matrix board, int k, int from, int to, int size) {
+		final int n = mSizes[k];
+
+		// Redelmeier の方法で、数字のマスを含む連結なマスの組を1回ずつ並べる
+		for (int u=from;u<to;u++) {
+			final int cell = mUntried[u];
+			mPath[size] = cell;
+
+			if (size + 1 == n) {
+				if (isValid(board, mPath, 0, n) && !store(k)) {
+					return false;
+				}
+				continue;
+			}
+
+			int next = to;
+			for (int v=u+1;v<to;v++) {
+				mUntried[next++] = mUntried[v];
+			}
+			final int added = next;
+			for (int dir=0;dir<4;dir++) {
+				final int q = neighbor(cell, dir);
+				if (q >= 0 && mReached[q] != mReachStamp && isAllowed(board, q)) {
+					mReached[q] = mReachStamp;
+					mUntried[next++] = q;
+				}
+			}
+
+			final boolean ok = extend(board, k, to, next, size + 1);
+			for (int v=added;v<next;v++) {
+				mReached[mUntried[v]] = 0;
+			}
+			if (!ok) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+	private boolean store(int k) {
+		final int n = mSizes[k];
+
+		if (mTotals[k] == mLimit) {
+			return false;
+		}
+		if ((mTotals[k] + 1) * n > mCells[k].length) {
+			mCells[k] = Arrays.copyOf(mCells[k], Math.min(mLimit, mTotals[k] * 2) * n);
+		}
+		System.arraycopy(mPath, 0, mCells[k], mTotals[k] * n, n);
+		mTotals[k]++;
+		return true;
+	}
+	private boolean isValid(Matrix board, int[] cells, int offset, int n) {
+		boolean valid = true;
+		for (int c=offset;c<offset+n;c++) {
+			mMember[cells[c]] = 1;
+		}
+
+		// 島のマスが黒くなく、周りに島の外の白がなければよい
+		for (int c=offset;c<offset+n&&valid;c++) {
+			if (get(board, cells[c]) == Nurikabe.B) {
+				valid = false;
+			}
+			for (int dir=0;dir<4&&valid;dir++) {
+				final int next = neighbor(cells[c], dir);
+				if (next >= 0 && mMember[next] == 0) {
+					final int value = get(board, next);
+					valid = value != Nurikabe.W && !isNumber(value);
+				}
+			}
+		}
+
+		for (int c=offset;c<offset+n;c++) {
+			mMember[cells[c]] = 0;
+		}
+		return valid;
+	}
+
+	/**
+	 * Prune
+	 */
+	public int prune(Matrix board, int[] out) {
+		final int cover = ++mStamp;
+		int count = 0;
+
+		for (int k=0;k<mCount;k++) {
+			if (mCapped[k]) {
+				cover(board, k, cover);
+				continue;
+			}
+			if (!isDirty(k)) {
+				// 前に絞り込んだときから変わっていなければ、覆う範囲だけ写す
+				for (int u=0;u<mUnionSizes[k];u++) {
+					mCover[mUnions[k][u]] = cover;
+				}
+				continue;
+			}
+			mPruned[k] = mVersion;
+
+			// 盤面と合わなくなった候補を生きている範囲の外に出す
+			final int n = mSizes[k];
+			final int[] order = mOrder[k];
+			int alive = mAlive[k];
+			for (int a=0;a<alive;) {
+				if (isValid(board, mCells[k], order[a] * n, n)) {
+					a++;
+				} else {
+					final int id = order[a];
+					order[a] = order[alive - 1];
+					order[alive - 1] = id;
+					alive--;
+				}
+			}
+			mAlive[k] = alive;
+			if (alive == 0) {
+				return -1;
+			}
+
+			// すべての候補に含まれるマスは白
+			final int stamp = ++mStamp;
+			mUnionSizes[k] = 0;
+			for (int a=0;a<alive;a++) {
+				for (int c=order[a]*n;c<(order[a]+1)*n;c++) {
+					final int cell = mCells[k][c];
+					if (mHitStamp[cell] != stamp) {
+						mHitStamp[cell] = stamp;
+						mHits[cell] = 0;
+						mUnions[k][mUnionSizes[k]++] = cell;
+					}
+					mHits[cell]++;
+					mCover[cell] = cover;
+				}
+			}
+			for (int c=order[0]*n;c<(order[0]+1)*n;c++) {
+				final int cell = mCells[k][c];
+				if (mHits[cell] == alive && get(board, cell) == Nurikabe.E) {
+					out[count++] = cell;
+				}
+			}
+		}
+
+		// どの候補にも含まれない空白マスは黒
+		for (int index=0;index<mW*mH;index++) {
+			if (mCover[index] != cover && get(board, index) == Nurikabe.E) {
+				out[count++] = ~index;
+			}
+		}
+
+		return count;
+	}
+	private void cover(Matrix board, int k, int cover) {
+		final int stamp = ++mStamp;
+		int head = 0;
+		int tail = 0;
+
+		// 並べきれなかった数字は、島が届きうる範囲をすべて含むとみなす
+		mReachStamp++;
+		mReached[mClues[k]] = mReachStamp;
+		mHitStamp[mClues[k]] = stamp;
+		mHits[mClues[k]] = 0;
+		mCover[mClues[k]] = cover;
+		mQueue[tail++] = mClues[k];
+
+		while (head < tail) {
+			final int current = mQueue[head++];
+			if (mHits[current] == mSizes[k] - 1) {
+				continue;
+			}
+			for (int dir=0;dir<4;dir++) {
+				final int next = neighbor(current, dir);
+				if (next >= 0 && mHitStamp[next] != stamp && isAllowed(board, next)) {
+					mHitStamp[next] = stamp;
+					mHits[next] = mHits[current] + 1;
+					mCover[next] = cover;
+					mQueue[tail++] = next;
+				}
+			}
+		}
+	}
+}
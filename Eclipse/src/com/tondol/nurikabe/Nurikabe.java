@@ -1,11 +1,18 @@
 package com.tondol.nurikabe;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class Nurikabe {
 	public static final int E = 0;
@@ -13,66 +20,108 @@ public class Nurikabe {
 	public static final int B = Integer.MAX_VALUE;
 
 	private Matrix mBoard = null;
+	private BitBoard mBits = null;
 	private Matrix mGroup = null;
 	private Matrix mGroupWhite = null;
 	private Matrix mGroupBlack = null;
-	private Map<Integer, List<SummaryEntry>> mSummary = null;
-	private Map<Integer, List<SummaryEntry>> mSummaryWhite = null;
-	private Map<Integer, List<SummaryEntry>> mSummaryBlack = null;
+	private Regions mRegions = null;
+	private Strategies.Scratch mScratch = null;
+	private Validator mValidator = null;
+	private Articulations mArticulations = null;
+	private int mMaxNumber = 0;
+	private int[] mQueue = null;
+	private int mQueueHead = 0;
+	private int mQueueTail = 0;
+	private boolean mQueueAll = true;
+	private int[] mArea = null;
+	private int[] mAreaStamp = null;
+	private int mAreaId = 0;
+	private int[] mReach = null;
+	private int[] mDistance = null;
+	private int mReachId = 0;
+	private int[] mTrail = null;
+	private int mTrailSize = 0;
+	private int mRegionsVersion = 0;
+	private Strategy mStrategy = Strategies.TOP_LEFT;
+	private long mNodes = 0;
+	private SearchListener[] mListeners = new SearchListener[0];
+	private int mPuts = 0;
+	private TranspositionTable mTable = null;
+	private Zobrist mZobrist = null;
+	private long mHash = 0;
+	private boolean mTimed = false;
+	private long mDeadline = 0;
+	private long mNodeLimit = 0;
+	private int mStopped = -1;
+	private int mMaxDepth = 0;
+	private ProgressListener mProgress = null;
+	private long mProgressInterval = 1;
+	private boolean mLearning = false;
+	private int[] mSegment = new int[64];
+	private Islands mIslands = null;
+	private int mIslandLimit = 0;
+	private int[] mIslandCells = null;
+	private int[] mIslandAlive = null;
+	private int mSegmentSize = 0;
+	private boolean[] mScope = null;
+	private int mComponents = 0;
 
 	public Nurikabe(Matrix board) {
 		mBoard = board;
+		mBits = new BitBoard(board);
+		mMaxNumber = getMaxNumber();
+		mValidator = new Validator(board.getW(), board.getH());
+		mArticulations = new Articulations(board.getW(), board.getH());
+		mQueue = new int[board.getW() * board.getH()];
+		mArea = new int[board.getW() * board.getH()];
+		mAreaStamp = new int[board.getW() * board.getH()];
+		mReach = new int[board.getW() * board.getH()];
+		mDistance = new int[board.getW() * board.getH()];
 	}
 
 	/**
 	 * GroupFunction,
-	 * GroupPair,
-	 * SummaryEntry,
-	 * Position
+	 * Branch,
+	 * Frame
 	 */
 	private interface GroupFunction {
 		public int f(int value);
 	}
-	private static class GroupPair {
-		int v1;
-		int v2;
-
-		public GroupPair(int v1, int v2) {
-			this.v1 = v1;
-			this.v2 = v2;
-		}
-		@Override
-		public String toString() {
-			return String.format("GroupPair: v1=%d, v2=%d", v1, v2);
-		}
-	}
-	private static class SummaryEntry {
-		int x;
-		int y;
+	private static class Branch {
+		BitBoard bits;
+		long hash;
+		int i;
+		int j;
 		int value;
-
-		public SummaryEntry(int x, int y, int value) {
-			this.x = x;
-			this.y = y;
+		int depth;
+		Frame parent;
+
+		public Branch(BitBoard bits, long hash, int i, int j, int value, int depth, Frame parent) {
+			this.bits = bits;
+			this.hash = hash;
+			this.i = i;
+			this.j = j;
 			this.value = value;
+			this.depth = depth;
+			this.parent = parent;
 		}
 		@Override
 		public String toString() {
 			String s = Utils.valueToString(value);
-			return String.format("SummaryEntry: x=%d, y=%d, value=%s", x, y, s);
+			return String.format("Branch: i=%d, j=%d, value=%s", i, j, s);
 		}
 	}
-	private static class Position {
-		int x;
-		int y;
-
-		public Position(int x, int y) {
-			this.x = x;
-			this.y = y;
-		}
-		@Override
-		public String toString() {
-			return String.format("Position: x=%d, y=%d", x, y);
+	private static class Frame {
+		long hash;
+		int depth;
+		int pending;
+		Frame parent;
+
+		public Frame(long hash, int depth, Frame parent) {
+			this.hash = hash;
+			this.depth = depth;
+			this.pending = 2;
+			this.parent = parent;
 		}
 	}
 
@@ -86,7 +135,7 @@ public class Nurikabe {
 		return value == B;
 	}
 	private boolean isNumber(int value) {
-		return value >= 1 && value <= 9;
+		return value >= 1 && value != B;
 	}
 	private boolean isFilled(int value) {
 		return isWhite(value) || isBlack(value) || isNumber(value);
@@ -114,84 +163,161 @@ public class Nurikabe {
 			return getKind(value);
 		}
 	}
-	private void invalidate() {
+	void invalidate() {
 		mGroup = mGroupWhite = mGroupBlack = null;
-		mSummary = mSummaryWhite = mSummaryBlack = null;
 	}
+	private void put(int i, int j, int value) {
+		int old_value = mBoard.get(i, j);
+		if (old_value == value) {
+			return;
+		}
 
-	/**
-	 * Group
-	 */
-	private Map<Integer, Integer> getGroupMap(List<GroupPair> pairs) {
-		int next_index = 0;
-		Map<Integer, Integer> map = new HashMap<Integer, Integer>();
-
-		for (GroupPair pair : pairs) {
-			SafeInteger o1 = new SafeInteger(map.get(pair.v1));
-			SafeInteger o2 = new SafeInteger(map.get(pair.v2));
-			int index1 = o1.intValue(-1);
-			int index2 = o2.intValue(-1);
-
-			if (index1 < 0 && index2 < 0) {
-				map.put(pair.v1, next_index);
-				map.put(pair.v2, next_index);
-				next_index++;
-			} else if (index1 >= 0 && index2 < 0) {
-				map.put(pair.v2, index1);
-			} else if (index1 < 0 && index2 >= 0) {
-				map.put(pair.v1, index2);
-			} else if (index1 != index2) {
-				int min = Math.min(index1, index2);
-				int max = Math.max(index1, index2);
-				for (Map.Entry<Integer, Integer> entry : map.entrySet()) {
-					int key = entry.getKey();
-					int value = entry.getValue();
-					if (value == max) {
-						map.put(key, min);
-					} else if (value > max) {
-						map.put(key, value - 1);
-					}
+		if (mTrail != null) {
+			record(i * mBoard.getW() + j, old_value);
+		}
+
+		mBoard.put(i, j, value);
+		mBits.put(i, j, value);
+		mPuts++;
+		invalidate();
+		enqueue(i * mBoard.getW() + j);
+		if (mIslands != null) {
+			mIslands.touch(i * mBoard.getW() + j);
+		}
+		if (mZobrist != null) {
+			final int index = i * mBoard.getW() + j;
+			mHash ^= mZobrist.key(index, old_value) ^ mZobrist.key(index, value);
+		}
+
+		// 空白マスを塗ったときだけ差分で更新できる
+		if (mRegions != null) {
+			if (isFilled(old_value)) {
+				mRegions = null;
+			} else {
+				mRegions.add(i, j);
+			}
+		}
+	}
+	private void setBoard(Matrix board) {
+		mBoard = board;
+		mBits = new BitBoard(board);
+		mIslands = null;
+		invalidate();
+		clearQueue(true);
+		if (mZobrist != null) {
+			mHash = mZobrist.hash(board);
+		}
+
+		if (mRegions != null) {
+			mRegions.reset(board);
+			mRegionsVersion++;
+		}
+	}
+	private void setBoard(BitBoard bits, long hash) {
+		// 盤面は使い回してビット列から書き戻す
+		mHash = hash;
+		mBits = bits;
+		mBits.copyTo(mBoard);
+		if (mIslands != null) {
+			mIslands.reset();
+		}
+		invalidate();
+		clearQueue(true);
+
+		if (mRegions != null) {
+			mRegions.reset(mBoard);
+			mRegionsVersion++;
+		}
+	}
+	Strategies.Scratch scratch() {
+		final int size = mBoard.getW() * mBoard.getH();
+		if (mScratch == null || mScratch.counts.length != size) {
+			mScratch = new Strategies.Scratch(size);
+		}
+		return mScratch;
+	}
+	Regions regions() {
+		if (mRegions != null) {
+			return mRegions;
+		}
+
+		mRegions = new Regions(mBoard);
+		mRegions.setLogging(mTrail != null);
+		mRegionsVersion++;
+		return mRegions;
+	}
+	private int getMaxNumber() {
+		final int w = mBoard.getW();
+		final int h = mBoard.getH();
+		int max_number = 0;
+
+		for (int i=0;i<h;i++) {
+			for (int j=0;j<w;j++) {
+				int value = mBoard.get(i, j);
+				if (isNumber(value) && value > max_number) {
+					max_number = value;
 				}
 			}
 		}
 
-		return map;
+		return max_number;
+	}
+
+	/**
+	 * Group
+	 */
+	private int findGroup(int[] parent, int index) {
+		while (parent[index] != index) {
+			parent[index] = parent[parent[index]];
+			index = parent[index];
+		}
+		return index;
+	}
+	private void unionGroup(int[] parent, int index1, int index2) {
+		int root1 = findGroup(parent, index1);
+		int root2 = findGroup(parent, index2);
+
+		// 添字の小さい方を根にする
+		if (root1 < root2) {
+			parent[root2] = root1;
+		} else if (root1 > root2) {
+			parent[root1] = root2;
+		}
 	}
 	private Matrix doGroup(GroupFunction func) {
 		final int w = mBoard.getW();
 		final int h = mBoard.getH();
 
 		int next_index = 0;
+		int[] kinds = new int[w * h];
+		int[] parent = new int[w * h];
+		int[] labels = new int[w * h];
 		Matrix matrix = new Matrix(w, h);
-		List<GroupPair> pairs = new ArrayList<GroupPair>();
 
 		for (int i=0;i<h;i++) {
 			for (int j=0;j<w;j++) {
-				boolean equals1 = i > 0 && func.f(mBoard.get(i - 1, j)) == func.f(mBoard.get(i, j));
-				boolean equals2 = j > 0 && func.f(mBoard.get(i, j - 1)) == func.f(mBoard.get(i, j));
-
-				if (!equals1 && !equals2) {
-					matrix.put(i, j, next_index);
-					pairs.add(new GroupPair(next_index, next_index));
-					next_index++;
-				} else if (equals1 && !equals2) {
-					matrix.put(i, j, matrix.get(i - 1, j));
-				} else if (!equals1 && equals2) {
-					matrix.put(i, j, matrix.get(i, j - 1));
-				} else {
-					int min = Math.min(matrix.get(i - 1, j), matrix.get(i, j - 1));
-					int max = Math.max(matrix.get(i - 1, j), matrix.get(i, j - 1));
-					matrix.put(i, j, min);
-					pairs.add(new GroupPair(min, max));
+				final int index = i * w + j;
+				kinds[index] = func.f(mBoard.get(i, j));
+				parent[index] = index;
+				labels[index] = -1;
+
+				if (i > 0 && kinds[index - w] == kinds[index]) {
+					unionGroup(parent, index - w, index);
+				}
+				if (j > 0 && kinds[index - 1] == kinds[index]) {
+					unionGroup(parent, index - 1, index);
 				}
 			}
 		}
 
-		Map<Integer, Integer> map = getGroupMap(pairs);
-
+		// 出現順に連番を振り直す
 		for (int i=0;i<h;i++) {
 			for (int j=0;j<w;j++) {
-				matrix.put(i, j, map.get(matrix.get(i, j)));
+				final int root = findGroup(parent, i * w + j);
+				if (labels[root] < 0) {
+					labels[root] = next_index++;
+				}
+				matrix.put(i, j, labels[root]);
 			}
 		}
 
@@ -234,132 +360,40 @@ public class Nurikabe {
 		});
 	}
 
-	/**
-	 * Summary
-	 */
-	public Map<Integer, List<SummaryEntry>> doSummary(GroupFunction func) {
-		final int w = mBoard.getW();
-		final int h = mBoard.getH();
-
-		Matrix group = doGroup(func);
-		Map<Integer, List<SummaryEntry>> map = new HashMap<Integer, List<SummaryEntry>>();
-
-		for (int i=0;i<h;i++) {
-			for (int j=0;j<w;j++) {
-				int index = group.get(i, j);
-				if (!map.containsKey(index)) {
-					map.put(index, new ArrayList<SummaryEntry>());
-				}
-
-				int value = mBoard.get(i, j);
-				SummaryEntry entry = new SummaryEntry(j, i, value);
-				map.get(index).add(entry);
-			}
-		}
-
-		return map;
-	}
-	public Map<Integer, List<SummaryEntry>> summary() {
-		if (mSummary != null) {
-			return mSummary;
-		}
-
-		return mSummary = doSummary(new GroupFunction() {
-			@Override
-			public int f(int value) {
-				return getKind(value);
-			}
-		});
-	}
-	public Map<Integer, List<SummaryEntry>> summaryWhite() {
-		if (mSummaryWhite != null) {
-			return mSummaryWhite;
-		}
-
-		return mSummaryWhite = doSummary(new GroupFunction() {
-			@Override
-			public int f(int value) {
-				return getKindWhite(value);
-			}
-		});
-	}
-	public Map<Integer, List<SummaryEntry>> summaryBlack() {
-		if (mSummaryBlack != null) {
-			return mSummaryBlack;
-		}
-
-		return mSummaryBlack = doSummary(new GroupFunction() {
-			@Override
-			public int f(int value) {
-				return getKindBlack(value);
-			}
-		});
-	}
-
 	/**
 	 * Check
 	 */
 	private boolean notContains2X2() {
-		final int w = mBoard.getW();
-		final int h = mBoard.getH();
-
-		for (int i=0;i<h;i++) {
-			for (int j=0;j<w;j++) {
-				if (i > 0 && j > 0 &&
-						mBoard.get(i, j) == Nurikabe.B &&
-						mBoard.get(i - 0, j - 0) == mBoard.get(i - 0, j - 1) &&
-						mBoard.get(i - 0, j - 1) == mBoard.get(i - 1, j - 0) &&
-						mBoard.get(i - 1, j - 0) == mBoard.get(i - 1, j - 1)) {
-					return false;
-				}
-			}
-		}
-
-		return true;
+		return !mBits.contains2X2();
 	}
 	private boolean isContinuous() {
+		final int size = mBoard.getW() * mBoard.getH();
 		int count = 0;
-		Map<Integer, List<SummaryEntry>> summary = summary();
+		Regions regions = regions();
 
 		// 黒のあるエリア数を数える
-		for (List<SummaryEntry> entries : summary.values()) {
-			for (SummaryEntry entry : entries) {
-				if (isBlack(entry.value)) {
-					count++;
-					break;
-				}
+		for (int index=0;index<size;index++) {
+			if (regions.isRoot(index) && !regions.isWhite(index)) {
+				count++;
 			}
 		}
 
 		return count == 1;
 	}
 	private boolean isValidCombination() {
-		Map<Integer, List<SummaryEntry>> summary = summary();
-
-		for (List<SummaryEntry> entries : summary.values()) {
-			int number = 0;
-			int countW = 0;
-			int countN = 0;
-			int countB = 0;
+		final int size = mBoard.getW() * mBoard.getH();
+		Regions regions = regions();
 
-			// 各マスを数える・数字を検索する
-			for (SummaryEntry entry : entries) {
-				if (isWhite(entry.value)) {
-					countW++;
-				} else if (isNumber(entry.value)) {
-					number = entry.value;
-					countN++;
-				} else if (isBlack(entry.value)) {
-					countB++;
-				}
+		for (int index=0;index<size;index++) {
+			// 空白マスが残っていれば不正
+			if (regions.size(regions.find(index)) == 0) {
+				return false;
 			}
-
-			if (countB == entries.size()) {
+			if (!regions.isRoot(index) || !regions.isWhite(index)) {
 				continue;
 			}
-			if (countW == entries.size() - 1 &&
-					countN == 1 &&
-					number == entries.size()) {
+			if (regions.clues(index) == 1 &&
+					regions.clue(index) == regions.size(index)) {
 				continue;
 			}
 
@@ -368,427 +402,1371 @@ public class Nurikabe {
 
 		return true;
 	}
-	private boolean isContinuousInSearching() {
-		int count = 0;
-		Map<Integer, List<SummaryEntry>> summary = summaryBlack();
-
-		// 黒のあるエリア数を数える
-		for (List<SummaryEntry> entries : summary.values()) {
-			for (SummaryEntry entry : entries) {
-				if (isBlack(entry.value)) {
-					count++;
-					break;
-				}
+	public boolean validate() {
+		return notContains2X2() &&
+				isContinuous() &&
+				isValidCombination();
+	}
+	public boolean validateInSearching() {
+		return checkInSearching() < 0;
+	}
+	private int checkInSearching() {
+		// 2x2はビット列で先に調べ、残りの規則は1回の走査で調べる
+		long time = now();
+		if (!notContains2X2()) {
+			lapCheck(SearchListener.CHECK_2X2, time, true);
+			return SearchListener.RULE_2X2;
+		}
+		time = lapCheck(SearchListener.CHECK_2X2, time, false);
+		if (mIslands != null) {
+			if (mIslands.isDead()) {
+				lapCheck(SearchListener.CHECK_ISLANDS, time, true);
+				return SearchListener.RULE_ISLANDS;
 			}
+			time = lapCheck(SearchListener.CHECK_ISLANDS, time, false);
 		}
 
-		return count == 0 || count == 1;
+		final int rule = mValidator.check(mBoard, regions(), mMaxNumber);
+		lapCheck(SearchListener.CHECK_SCAN, time, rule >= 0);
+		return rule;
 	}
-	private boolean isValidCombinationInSearching() {
-		Map<Integer, List<SummaryEntry>> summary = summary();
 
-		for (List<SummaryEntry> entries : summary.values()) {
-			int number = 0;
-			int countE = 0;
-			int countW = 0;
-			int countN = 0;
-			int countB = 0;
-
-			// 各マスを数える・数字を検索する
-			for (SummaryEntry entry : entries) {
-				if (isWhite(entry.value)) {
-					countW++;
-				} else if (isNumber(entry.value)) {
-					number = entry.value;
-					countN++;
-				} else if (isBlack(entry.value)) {
-					countB++;
-				} else {
-					countE++;
-				}
-			}
-
-			if (countE == entries.size() ||
-					countW == entries.size() ||
-					countB == entries.size()) {
-				continue;
-			}
-			if (countW == entries.size() - 1 &&
-					countN == 1 &&
-					number >= entries.size()) {
-				continue;
-			}
-
-			return false;
+	/**
+	 * Queue
+	 */
+	private void enqueue(int index) {
+		if (mQueueTail == mQueue.length) {
+			int[] queue = new int[mQueue.length * 2];
+			System.arraycopy(mQueue, 0, queue, 0, mQueueTail);
+			mQueue = queue;
 		}
 
-		return true;
+		mQueue[mQueueTail++] = index;
+	}
+	private void clearQueue(boolean all) {
+		mQueueHead = mQueueTail = 0;
+		mQueueAll = all;
+	}
+	void assume(int i, int j, int value) {
+		// 盤面はすでに伝播済みなので、置いたマスからだけ伝播すればよい
+		clearQueue(false);
+		put(i, j, value);
+	}
+	BitBoard snapshot() {
+		return mBits.clone();
+	}
+	void restore(BitBoard bits) {
+		// 並列探索では置換表を使わないのでハッシュは持たない
+		setBoard(bits, 0);
 	}
-	public boolean includesNotWhiteCells() {
-		Map<Integer, List<SummaryEntry>> summary = summaryWhite();
-
-		for (List<SummaryEntry> entries : summary.values()) {
-			int count = 0;
 
-			// 白マスを数える
-			for (SummaryEntry entry : entries) {
-				if (isWhite(entry.value)) {
-					count++;
-				}
-			}
+	/**
+	 * Trail
+	 */
+	private void startTrail() {
+		mTrail = new int[64];
+		mTrailSize = 0;
 
-			if (count == entries.size()) {
-				return false;
-			}
+		if (mRegions != null) {
+			mRegions.setLogging(true);
+			mRegionsVersion++;
 		}
+	}
+	private void stopTrail() {
+		mTrail = null;
+		mTrailSize = 0;
 
-		return true;
+		if (mRegions != null) {
+			mRegions.setLogging(false);
+			mRegionsVersion++;
+		}
 	}
-	public boolean isNumberOfCellsMoreThanNumber() {
-		Map<Integer, List<SummaryEntry>> summary = summaryWhite();
+	private void record(int index, int old_value) {
+		if (mTrailSize + 4 > mTrail.length) {
+			mTrail = Arrays.copyOf(mTrail, mTrail.length * 2);
+		}
 
-		for (List<SummaryEntry> entries : summary.values()) {
-			int number = 0;
+		mTrail[mTrailSize++] = index;
+		mTrail[mTrailSize++] = old_value;
+		mTrail[mTrailSize++] = mRegions != null ? mRegions.mark() : -1;
+		mTrail[mTrailSize++] = mRegionsVersion;
+	}
+	int mark() {
+		return mTrailSize;
+	}
+	private void save(int mark) {
+		final int w = mBoard.getW();
+		mSegmentSize = 0;
 
-			// 数字を検索する
-			for (SummaryEntry entry : entries) {
-				if (isNumber(entry.value)) {
-					number = entry.value;
-					break;
-				}
+		// 戻す前に、書き込まれたマスと今の値を控えておく
+		for (int k=mark;k<mTrailSize;k+=4) {
+			if (mSegmentSize + 2 > mSegment.length) {
+				mSegment = Arrays.copyOf(mSegment, mSegment.length * 2);
 			}
-
-			if (number != 0 &&
-					number > entries.size()) {
-				return false;
+			final int index = mTrail[k];
+			if (index < 0) {
+				continue;
 			}
+			mSegment[mSegmentSize++] = index;
+			mSegment[mSegmentSize++] = mBoard.get(index / w, index % w);
 		}
+	}
+	private void redo() {
+		final int w = mBoard.getW();
 
-		return true;
+		// 控えた値をそのまま置き直すので伝播し直す必要はない
+		for (int k=0;k<mSegmentSize;k+=2) {
+			put(mSegment[k] / w, mSegment[k] % w, mSegment[k + 1]);
+		}
+		clearQueue(false);
 	}
-	private boolean isNumberOfCellsLessThanMaxNumber() {
-		int max_number = 0;
-		Map<Integer, List<SummaryEntry>> summary = summary();
+	void undo(int mark) {
+		final int w = mBoard.getW();
 
-		for (List<SummaryEntry> entries : summary.values()) {
-			int number = 0;
+		while (mTrailSize > mark) {
+			mTrailSize -= 4;
+			final int index = mTrail[mTrailSize];
+			final int old_value = mTrail[mTrailSize + 1];
+			final int regions_mark = mTrail[mTrailSize + 2];
+			final int version = mTrail[mTrailSize + 3];
 
-			// 数字を検索する
-			for (SummaryEntry entry : entries) {
-				if (isNumber(entry.value)) {
-					number = entry.value;
-					break;
-				}
+			// 負の添字は島の候補の数を戻す
+			if (index < 0) {
+				mIslands.setAlive(-1 - index, old_value);
+				continue;
 			}
 
-			if (number > max_number) {
-				max_number = number;
+			if (mZobrist != null) {
+				mHash ^= mZobrist.key(index, mBoard.get(index / w, index % w)) ^ mZobrist.key(index, old_value);
 			}
-		}
-
-		for (List<SummaryEntry> entries : summary.values()) {
-			int count = 0;
-
-			for (SummaryEntry entry : entries) {
-				if (isWhite(entry.value)) {
-					count++;
-				}
+			mBoard.put(index / w, index % w, old_value);
+			mBits.put(index / w, index % w, old_value);
+			if (mIslands != null) {
+				mIslands.touch(index);
 			}
 
-			if (count >= max_number) {
-				return false;
+			// 記録後に作り直された森は差分では戻せない
+			if (mRegions != null) {
+				if (regions_mark >= 0 && version == mRegionsVersion) {
+					mRegions.undo(regions_mark);
+				} else {
+					mRegions = null;
+				}
 			}
 		}
 
-		return true;
-	}
-	public boolean validate() {
-		return notContains2X2() &&
-				isContinuous() &&
-				isValidCombination();
-	}
-	public boolean validateInSearching() {
-		return notContains2X2() &&
-				isContinuousInSearching() &&
-				isValidCombinationInSearching() &&
-				includesNotWhiteCells() &&
-				isNumberOfCellsMoreThanNumber() &&
-				isNumberOfCellsLessThanMaxNumber();
+		invalidate();
+		clearQueue(false);
 	}
 
 	/**
 	 * Fill
 	 */
-	private void fillNeighborCells() {
+	void fillNeighborCells() {
 		final int w = mBoard.getW();
 		final int h = mBoard.getH();
+		final long time = now();
+		final int puts = mPuts;
 
 		for (int i=0;i<h;i++) {
 			for (int j=0;j<w;j++) {
 				if (i > 0 && j > 0) {
 					if (isNumber(mBoard.get(i - 1, j - 0)) &&
 							isNumber(mBoard.get(i - 0, j - 1))) {
-						mBoard.put(i - 1, j - 1, B);
-						mBoard.put(i - 0, j - 0, B);
-						invalidate();
+						put(i - 1, j - 1, B);
+						put(i - 0, j - 0, B);
 					} else if (isNumber(mBoard.get(i - 1, j - 1)) &&
 							isNumber(mBoard.get(i - 0, j - 0))) {
-						mBoard.put(i - 1, j - 0, B);
-						mBoard.put(i - 0, j - 1, B);
-						invalidate();
+						put(i - 1, j - 0, B);
+						put(i - 0, j - 1, B);
 					}
 				}
 				if (i >= 2 &&
 						isNumber(mBoard.get(i - 2, j)) &&
 						isNumber(mBoard.get(i - 0, j))) {
-					mBoard.put(i - 1, j, B);
-					invalidate();
+					put(i - 1, j, B);
 				}
 				if (j >= 2 &&
 						isNumber(mBoard.get(i, j - 2)) &&
 						isNumber(mBoard.get(i, j - 0))) {
-					mBoard.put(i, j - 1, B);
-					invalidate();
+					put(i, j - 1, B);
 				}
 			}
 		}
+		lapFill(SearchListener.FILL_NEIGHBOR, time, puts);
 	}
-	private void fillCellsInAreaWithoutNumber() {
-		Map<Integer, List<SummaryEntry>> summary = summaryWhite();
-
-		for (List<SummaryEntry> entries : summary.values()) {
-			int number = 0;
-
-			// 数字を検索する
-			for (SummaryEntry entry : entries) {
-				if (isNumber(entry.value)) {
-					number = entry.value;
-					break;
-				}
-			}
+	private void fillCellsInAreaWithoutNumber(int count) {
+		final int w = mBoard.getW();
 
-			if (number == 0) {
-				for (SummaryEntry entry : entries) {
-					final int i = entry.y;
-					final int j = entry.x;
+		// 白マスが残れば探索中の検査で矛盾として弾かれる
+		for (int k=0;k<count;k++) {
+			final int i = mArea[k] / w;
+			final int j = mArea[k] % w;
 
-					mBoard.put(i, j, B);
-					invalidate();
-				}
+			if (!isFilled(mBoard.get(i, j))) {
+				put(i, j, B);
 			}
 		}
 	}
-	private void fillCellsInAreaWithNumber() {
-		Map<Integer, List<SummaryEntry>> summary = summaryWhite();
-
-		for (Map.Entry<Integer, List<SummaryEntry>> pair : summary.entrySet()) {
-			int number = 0;
-			int index = pair.getKey();
-			List<SummaryEntry> entries = pair.getValue();
-
-			// 数字を検索する
-			for (SummaryEntry entry : entries) {
-				if (isNumber(entry.value)) {
-					number = entry.value;
-					break;
-				}
-			}
+	private void fillCellsInAreaWithNumber(int count) {
+		final int w = mBoard.getW();
 
-			if (number != 0 && number == entries.size()) {
-				for (SummaryEntry entry : summary.get(index)) {
-					final int i = entry.y;
-					final int j = entry.x;
+		for (int k=0;k<count;k++) {
+			final int i = mArea[k] / w;
+			final int j = mArea[k] % w;
 
-					if (!isFilled(mBoard.get(i, j))) {
-						mBoard.put(i, j, W);
-						invalidate();
-					}
-				}
+			if (!isFilled(mBoard.get(i, j))) {
+				put(i, j, W);
 			}
 		}
 	}
-	private void fillEdgeCellsOfAreaWithNumber() {
+	private void fillEdgeCellsOfAreaWithNumber(int root) {
 		final int w = mBoard.getW();
 		final int h = mBoard.getH();
-		Map<Integer, List<SummaryEntry>> summary = summary();
-		Matrix group = group();
-
-		for (Map.Entry<Integer, List<SummaryEntry>> pair : summary.entrySet()) {
-			int number = 0;
-			int index = pair.getKey();
-			List<SummaryEntry> entries = pair.getValue();
-
-			// 数字を検索する
-			for (SummaryEntry entry : entries) {
-				if (isNumber(entry.value)) {
-					number = entry.value;
-					break;
-				}
-			}
+		Regions regions = regions();
 
-			if (number != 0 && number == entries.size()) {
-				for (SummaryEntry entry : entries) {
-					final int i = entry.y;
-					final int j = entry.x;
+		// 完成した島の周りを黒で囲む
+		int index = root;
+		do {
+			final int i = index / w;
+			final int j = index % w;
 
-					if (i > 0 && group.get(i - 1, j) != index) {
-						mBoard.put(i - 1, j, B);
-						invalidate();
-					}
-					if (j > 0 && group.get(i, j - 1) != index) {
-						mBoard.put(i, j - 1, B);
-						invalidate();
-					}
-					if (i < h - 1 && group.get(i + 1, j) != index) {
-						mBoard.put(i + 1, j, B);
-						invalidate();
-					}
-					if (j < w - 1 && group.get(i, j + 1) != index) {
-						mBoard.put(i, j + 1, B);
-						invalidate();
-					}
-				}
+			if (i > 0 && !isFilled(mBoard.get(i - 1, j))) {
+				put(i - 1, j, B);
 			}
-		}
+			if (j > 0 && !isFilled(mBoard.get(i, j - 1))) {
+				put(i, j - 1, B);
+			}
+			if (i < h - 1 && !isFilled(mBoard.get(i + 1, j))) {
+				put(i + 1, j, B);
+			}
+			if (j < w - 1 && !isFilled(mBoard.get(i, j + 1))) {
+				put(i, j + 1, B);
+			}
+			index = regions.next(index);
+		} while (index != root);
 	}
-	private void fillCellsExtensible() {
+	private void fillCellsExtensible(int root) {
 		final int w = mBoard.getW();
 		final int h = mBoard.getH();
-		Map<Integer, List<SummaryEntry>> summary = summaryWhite();
-
-		for (Map.Entry<Integer, List<SummaryEntry>> pair : summary.entrySet()) {
-			int number = 0;
-			int count = 0;
-			int index = pair.getKey();
-			List<SummaryEntry> entries = pair.getValue();
-
-			// 白マスを数える・数字を検索する
-			for (SummaryEntry entry : entries) {
-				if (isWhite(entry.value)) {
-					count++;
-				} else if (isNumber(entry.value)) {
-					number = entry.value;
-				}
-			}
-
-			if ((number != 0 && number > entries.size()) ||
-					count == entries.size()) {
-				List<Position> positions = new ArrayList<Position>();
+		Regions regions = regions();
 
-				for (SummaryEntry entry : summary.get(index)) {
-					final int i = entry.y;
-					final int j = entry.x;
-
-					if (i > 0 && !isFilled(mBoard.get(i - 1, j))) {
-						positions.add(new Position(j, i - 1));
-					}
-					if (j > 0 && !isFilled(mBoard.get(i, j - 1))) {
-						positions.add(new Position(j - 1, i));
-					}
-					if (i < h - 1 && !isFilled(mBoard.get(i + 1, j))) {
-						positions.add(new Position(j, i + 1));
-					}
-					if (j < w - 1 && !isFilled(mBoard.get(i, j + 1))) {
-						positions.add(new Position(j + 1, i));
-					}
-				}
+		if (regions.liberties(root) != 1) {
+			return;
+		}
 
-				if (positions.size() == 1) {
-					final int i = positions.get(0).y;
-					final int j = positions.get(0).x;
+		// 伸ばせる先が1マスしかなければそこは白
+		int index = root;
+		do {
+			final int i = index / w;
+			final int j = index % w;
 
-					// ラベリングからやり直す必要がある
-					mBoard.put(i, j, W);
-					invalidate();
-					return;
-				}
+			if (i > 0 && !isFilled(mBoard.get(i - 1, j))) {
+				put(i - 1, j, W);
+				return;
 			}
-		}
+			if (j > 0 && !isFilled(mBoard.get(i, j - 1))) {
+				put(i, j - 1, W);
+				return;
+			}
+			if (i < h - 1 && !isFilled(mBoard.get(i + 1, j))) {
+				put(i + 1, j, W);
+				return;
+			}
+			if (j < w - 1 && !isFilled(mBoard.get(i, j + 1))) {
+				put(i, j + 1, W);
+				return;
+			}
+			index = regions.next(index);
+		} while (index != root);
 	}
-	public void fill() {
+	private void fillArea(int start) {
 		final int w = mBoard.getW();
 		final int h = mBoard.getH();
+		final long time = now();
+		final int puts = mPuts;
+		int number = 0;
 		int count = 0;
 
-		while (true) {
-			int next_count = 0;
+		// 黒以外のマスの連結領域を集める
+		mAreaStamp[start] = mAreaId;
+		mArea[count++] = start;
+		for (int k=0;k<count;k++) {
+			final int i = mArea[k] / w;
+			final int j = mArea[k] % w;
+			final int value = mBoard.get(i, j);
 
-			for (int i=0;i<h;i++) {
-				for (int j=0;j<w;j++) {
-					if (!isFilled(mBoard.get(i, j))) {
-						next_count++;
-					}
-				}
+			if (number == 0 && isNumber(value)) {
+				number = value;
 			}
-
-			if (next_count == count) {
-				return;
+			if (i > 0) {
+				count = visitArea(i - 1, j, count);
+			}
+			if (j > 0) {
+				count = visitArea(i, j - 1, count);
 			}
+			if (i < h - 1) {
+				count = visitArea(i + 1, j, count);
+			}
+			if (j < w - 1) {
+				count = visitArea(i, j + 1, count);
+			}
+		}
 
-			count = next_count;
+		if (number == 0) {
+			fillCellsInAreaWithoutNumber(count);
+		} else if (number == count) {
+			fillCellsInAreaWithNumber(count);
+		}
+		lapFill(SearchListener.FILL_AREA, time, puts);
+	}
+	private int visitArea(int i, int j, int count) {
+		final int index = i * mBoard.getW() + j;
 
-			fillNeighborCells();
-			fillCellsInAreaWithoutNumber();
-			fillCellsInAreaWithNumber();
-			fillEdgeCellsOfAreaWithNumber();
-			fillCellsExtensible();
+		if (mAreaStamp[index] != mAreaId && !isBlack(mBoard.get(i, j))) {
+			mAreaStamp[index] = mAreaId;
+			mArea[count++] = index;
 		}
+
+		return count;
 	}
+	private void fillIsland(int root) {
+		Regions regions = regions();
 
-	/**
-	 * Solve
-	 */
-	private List<Position> findEmptyCells() {
-		final int w = mBoard.getW();
-		final int h = mBoard.getH();
-		List<Position> positions = new ArrayList<Position>();
+		if (regions.clues(root) > 1) {
+			return;
+		}
 
-		for (int i=0;i<h;i++) {
-			for (int j=0;j<w;j++) {
-				if (!isFilled(mBoard.get(i, j))) {
-					positions.add(new Position(j, i));
+		final long time = now();
+		final int puts = mPuts;
+		if (regions.clue(root) != 0 &&
+				regions.clue(root) == regions.size(root)) {
+			fillEdgeCellsOfAreaWithNumber(root);
+			lapFill(SearchListener.FILL_ISLAND, time, puts);
+		} else {
+			fillCellsExtensible(root);
+			lapFill(SearchListener.FILL_EXTENSIBLE, time, puts);
+		}
+	}
+	void fillAreas() {
+		final int w = mBoard.getW();
+		final int h = mBoard.getH();
+
+		if (++mAreaId == Integer.MAX_VALUE) {
+			Arrays.fill(mAreaStamp, 0);
+			mAreaId = 1;
+		}
+		for (int index=0;index<w*h;index++) {
+			if (mAreaStamp[index] != mAreaId && !isBlack(mBoard.get(index / w, index % w))) {
+				fillArea(index);
+			}
+		}
+	}
+	void fillIslands() {
+		final int w = mBoard.getW();
+		final int h = mBoard.getH();
+		Regions regions = regions();
+
+		for (int index=0;index<w*h;index++) {
+			if (regions.isRoot(index) && regions.isWhite(index)) {
+				fillIsland(index);
+			}
+		}
+	}
+	private boolean fillUnreachableCells() {
+		final int w = mBoard.getW();
+		final int h = mBoard.getH();
+		Regions regions = regions();
+		boolean filled = false;
+
+		if (mMaxNumber == 0) {
+			return false;
+		}
+		if (++mReachId == Integer.MAX_VALUE) {
+			Arrays.fill(mReach, 0);
+			mReachId = 1;
+		}
+
+		// 数字のある島から残りの大きさで届くマスに印を付ける
+		for (int index=0;index<w*h;index++) {
+			if (!regions.isRoot(index) ||
+					!regions.isWhite(index) ||
+					regions.clues(index) == 0) {
+				continue;
+			}
+			if (regions.clues(index) > 1) {
+				return false;
+			}
+			reachIsland(index, regions.clue(index) - regions.size(index));
+		}
+
+		// どの島も届かない空白マスは黒
+		for (int index=0;index<w*h;index++) {
+			final int i = index / w;
+			final int j = index % w;
+
+			if (mBoard.get(i, j) == E && mReach[index] != mReachId) {
+				put(i, j, B);
+				filled = true;
+			}
+		}
+
+		return filled;
+	}
+	private void reachIsland(int root, int budget) {
+		final int w = mBoard.getW();
+		final int h = mBoard.getH();
+		Regions regions = regions();
+		int count = 0;
+
+		if (++mAreaId == Integer.MAX_VALUE) {
+			Arrays.fill(mAreaStamp, 0);
+			mAreaId = 1;
+		}
+
+		int index = root;
+		do {
+			mAreaStamp[index] = mAreaId;
+			mReach[index] = mReachId;
+			mDistance[index] = 0;
+			mArea[count++] = index;
+			index = regions.next(index);
+		} while (index != root);
+
+		for (int k=0;k<count;k++) {
+			final int current = mArea[k];
+			final int i = current / w;
+			final int j = current % w;
+
+			if (mDistance[current] == budget) {
+				continue;
+			}
+			if (i > 0) {
+				count = visitReach(root, current - w, current, count);
+			}
+			if (j > 0) {
+				count = visitReach(root, current - 1, current, count);
+			}
+			if (i < h - 1) {
+				count = visitReach(root, current + w, current, count);
+			}
+			if (j < w - 1) {
+				count = visitReach(root, current + 1, current, count);
+			}
+		}
+	}
+	private int visitReach(int root, int index, int from, int count) {
+		final int value = mBoard.get(index / mBoard.getW(), index % mBoard.getW());
+		Regions regions = regions();
+
+		if (mAreaStamp[index] == mAreaId) {
+			return count;
+		}
+		if (value == E) {
+			// 他の島に接する空白マスには伸ばせない
+			if (touchesOtherIsland(root, index)) {
+				return count;
+			}
+		} else if (!isWhite(value) || regions.clues(regions.find(index)) > 0) {
+			return count;
+		}
+
+		mAreaStamp[index] = mAreaId;
+		mReach[index] = mReachId;
+		mDistance[index] = mDistance[from] + 1;
+		mArea[count++] = index;
+		return count;
+	}
+	private boolean touchesOtherIsland(int root, int index) {
+		final int w = mBoard.getW();
+		final int h = mBoard.getH();
+		final int i = index / w;
+		final int j = index % w;
+
+		return (i > 0 && isOtherIsland(root, index - w)) ||
+				(j > 0 && isOtherIsland(root, index - 1)) ||
+				(i < h - 1 && isOtherIsland(root, index + w)) ||
+				(j < w - 1 && isOtherIsland(root, index + 1));
+	}
+	private boolean isOtherIsland(int root, int index) {
+		final int value = mBoard.get(index / mBoard.getW(), index % mBoard.getW());
+		Regions regions = regions();
+
+		if (!isWhite(value) && !isNumber(value)) {
+			return false;
+		}
+
+		final int other = regions.find(index);
+		return other != root && regions.clues(other) > 0;
+	}
+	private boolean fillIslandCandidates() {
+		final int w = mBoard.getW();
+		if (mIslandLimit == 0) {
+			return false;
+		}
+
+		// 最初に呼ばれたときの盤面で島の置き方を並べておく
+		if (mIslands == null) {
+			mIslands = new Islands(w, mBoard.getH(), mIslandLimit);
+			mIslands.enumerate(mBoard);
+			mIslandCells = new int[w * mBoard.getH()];
+			mIslandAlive = new int[mIslands.getClueCount()];
+		}
+
+		// 絞り込んだ候補の数は後戻りで戻せるように記録する
+		for (int k=0;k<mIslandAlive.length;k++) {
+			mIslandAlive[k] = mIslands.getAlive(k);
+		}
+		final int count = mIslands.prune(mBoard, mIslandCells);
+		if (mTrail != null) {
+			for (int k=0;k<mIslandAlive.length;k++) {
+				if (mIslands.getAlive(k) != mIslandAlive[k]) {
+					record(-1 - k, mIslandAlive[k]);
 				}
 			}
 		}
 
-		return positions;
+		boolean filled = false;
+		for (int k=0;k<count;k++) {
+			final int index = mIslandCells[k] >= 0 ? mIslandCells[k] : ~mIslandCells[k];
+			final int i = index / w;
+			final int j = index % w;
+
+			if (mBoard.get(i, j) == E) {
+				put(i, j, mIslandCells[k] >= 0 ? W : B);
+				filled = true;
+			}
+		}
+
+		return filled;
 	}
-	public boolean solve() {
-		Stack<Matrix> stack = new Stack<Matrix>();
-		stack.add(mBoard);
+	private boolean fillArticulationCells() {
+		final int w = mBoard.getW();
+		final int count = mArticulations.find(mBoard, mBits.countBlackCells(), mArea);
+		boolean filled = false;
 
-		while (!stack.isEmpty()) {
-			mBoard = stack.pop();
-			invalidate();
+		// 黒どうしをつなぐ唯一の空白マスは黒
+		for (int k=0;k<count;k++) {
+			final int i = mArea[k] / w;
+			final int j = mArea[k] % w;
 
-			if (validateInSearching()) {
-				fill();
+			if (mBoard.get(i, j) == E) {
+				put(i, j, B);
+				filled = true;
+			}
+		}
 
-				List<Position> positions = findEmptyCells();
+		return filled;
+	}
+	private void fillBlackEscape(int start) {
+		final int w = mBoard.getW();
+		final int h = mBoard.getH();
+		final long time = now();
+		final int puts = mPuts;
+		int count = 0;
+		int exits = 0;
+		int exit = -1;
+
+		if (++mAreaId == Integer.MAX_VALUE) {
+			Arrays.fill(mAreaStamp, 0);
+			mAreaId = 1;
+		}
 
-				if (!positions.isEmpty()) {
-					final int i = positions.get(0).y;
-					final int j = positions.get(0).x;
-					System.out.println(String.format("DEBUG[%d, %d]:", i, j));
-					System.out.println(toString());
+		// 黒の塊の出口を2つ見つけるまで辿る
+		mAreaStamp[start] = mAreaId;
+		mArea[count++] = start;
+		for (int k=0;k<count&&exits<2;k++) {
+			final int i = mArea[k] / w;
+			final int j = mArea[k] % w;
+
+			for (int dir=0;dir<4;dir++) {
+				final int ni = dir == 0 ? i - 1 : dir == 2 ? i + 1 : i;
+				final int nj = dir == 1 ? j - 1 : dir == 3 ? j + 1 : j;
+				if (ni < 0 || nj < 0 || ni >= h || nj >= w) {
+					continue;
+				}
 
-					mBoard.put(i, j, B);
-					stack.push(mBoard.clone());
-					mBoard.put(i, j, W);
-					stack.push(mBoard.clone());
+				final int index = ni * w + nj;
+				final int value = mBoard.get(ni, nj);
+				if (mAreaStamp[index] == mAreaId || (value != B && value != E)) {
+					continue;
+				}
+
+				mAreaStamp[index] = mAreaId;
+				if (value == B) {
+					mArea[count++] = index;
+				} else {
+					exit = index;
+					exits++;
+				}
+			}
+		}
+
+		// 出口が1つなら、他の黒とつながるにはそこを通るしかない
+		if (exits == 1 && count < mBits.countBlackCells()) {
+			put(exit / w, exit % w, B);
+		}
+		lapFill(SearchListener.FILL_ESCAPE, time, puts);
+	}
+	private boolean fillBoard(int rule) {
+		final long time = now();
+		final int puts = mPuts;
+		boolean filled = false;
+
+		// 盤面全体の規則は埋まらなくなるまで前から順に試す
+		switch (rule) {
+		case SearchListener.FILL_UNREACHABLE:
+			filled = fillUnreachableCells();
+			break;
+		case SearchListener.FILL_ARTICULATION:
+			filled = fillArticulationCells();
+			break;
+		case SearchListener.FILL_CANDIDATES:
+			filled = fillIslandCandidates();
+			break;
+		}
+
+		lapFill(rule, time, puts);
+		return filled;
+	}
+	private void fillAll() {
+		fillNeighborCells();
+		fillAreas();
+		fillIslands();
+	}
+	private void fillAround(int index) {
+		final int w = mBoard.getW();
+		final int h = mBoard.getH();
+		final int i = index / w;
+		final int j = index % w;
+		final int value = mBoard.get(i, j);
+
+		if (isBlack(value)) {
+			// 分断されたかもしれない周りの領域を調べ直す
+			if (++mAreaId == Integer.MAX_VALUE) {
+				Arrays.fill(mAreaStamp, 0);
+				mAreaId = 1;
+			}
+			if (i > 0 && mAreaStamp[index - w] != mAreaId && !isBlack(mBoard.get(i - 1, j))) {
+				fillArea(index - w);
+			}
+			if (j > 0 && mAreaStamp[index - 1] != mAreaId && !isBlack(mBoard.get(i, j - 1))) {
+				fillArea(index - 1);
+			}
+			if (i < h - 1 && mAreaStamp[index + w] != mAreaId && !isBlack(mBoard.get(i + 1, j))) {
+				fillArea(index + w);
+			}
+			if (j < w - 1 && mAreaStamp[index + 1] != mAreaId && !isBlack(mBoard.get(i, j + 1))) {
+				fillArea(index + 1);
+			}
+
+			// 塊の出口が減った
+			fillBlackEscape(index);
+
+			// 隣の島は伸ばせる先が減った
+			Regions regions = regions();
+			if (i > 0 && isFilled(mBoard.get(i - 1, j)) && !isBlack(mBoard.get(i - 1, j))) {
+				fillIsland(regions.find(index - w));
+			}
+			if (j > 0 && isFilled(mBoard.get(i, j - 1)) && !isBlack(mBoard.get(i, j - 1))) {
+				fillIsland(regions.find(index - 1));
+			}
+			if (i < h - 1 && isFilled(mBoard.get(i + 1, j)) && !isBlack(mBoard.get(i + 1, j))) {
+				fillIsland(regions.find(index + w));
+			}
+			if (j < w - 1 && isFilled(mBoard.get(i, j + 1)) && !isBlack(mBoard.get(i, j + 1))) {
+				fillIsland(regions.find(index + 1));
+			}
+		} else if (isFilled(value)) {
+			fillIsland(regions().find(index));
+
+			// 隣の黒の塊は出口が減った
+			if (i > 0 && isBlack(mBoard.get(i - 1, j))) {
+				fillBlackEscape(index - w);
+			}
+			if (j > 0 && isBlack(mBoard.get(i, j - 1))) {
+				fillBlackEscape(index - 1);
+			}
+			if (i < h - 1 && isBlack(mBoard.get(i + 1, j))) {
+				fillBlackEscape(index + w);
+			}
+			if (j < w - 1 && isBlack(mBoard.get(i, j + 1))) {
+				fillBlackEscape(index + 1);
+			}
+		}
+	}
+	public void fill() {
+		final boolean changed = mQueueAll || mQueueHead < mQueueTail;
+
+		if (mQueueAll) {
+			clearQueue(false);
+			fillAll();
+		}
+
+		// 変化したマスの周りだけを調べ直し、盤面全体の規則で埋まればまた調べる
+		do {
+			while (mQueueHead < mQueueTail) {
+				fillAround(mQueue[mQueueHead++]);
+			}
+		} while (changed && (fillBoard(SearchListener.FILL_UNREACHABLE) ||
+				fillBoard(SearchListener.FILL_ARTICULATION) ||
+				fillBoard(SearchListener.FILL_CANDIDATES)));
+
+		notifyPropagate(mQueueHead);
+		clearQueue(false);
+	}
+
+	/**
+	 * Strategy
+	 */
+	public Matrix getBoard() {
+		return mBoard;
+	}
+	public Strategy getStrategy() {
+		return mStrategy;
+	}
+	public void setStrategy(Strategy strategy) {
+		mStrategy = strategy;
+	}
+	public long getNodeCount() {
+		return mNodes;
+	}
+	public TranspositionTable getTranspositionTable() {
+		return mTable;
+	}
+	public int getIslandLimit() {
+		return mIslandLimit;
+	}
+	public void setIslandLimit(int limit) {
+		// 数字ごとに並べる島の置き方の上限、0 なら並べない
+		mIslandLimit = limit;
+		mIslands = null;
+	}
+	public boolean isLearning() {
+		return mLearning;
+	}
+	public void setLearning(boolean learning) {
+		mLearning = learning;
+	}
+	public void setTranspositionTable(TranspositionTable table) {
+		// 表を使うときだけ盤面のハッシュを保つ
+		mTable = table;
+		mZobrist = table != null ? new Zobrist(mBoard) : null;
+		mHash = table != null ? mZobrist.hash(mBoard) : 0;
+	}
+	private boolean isKnownDead(long hash) {
+		return mTable != null && mTable.contains(hash);
+	}
+	private void remember(long hash, int depth) {
+		if (mTable != null) {
+			mTable.store(hash, depth);
+		}
+	}
+	private void release(Frame frame) {
+		// 子をすべて調べ終えた節は解がないと分かる
+		while (frame != null && --frame.pending == 0) {
+			remember(frame.hash, frame.depth);
+			frame = frame.parent;
+		}
+	}
+	int findEmptyCell() {
+		return mBits.findEmptyCell();
+	}
+	int probe(int i, int j, int value) {
+		final boolean trailing = mTrail != null;
+		final int count = mBits.countEmptyCells();
+
+		// 仮に置いて伝播させ、埋まったマス数を数えてから戻す
+		if (!trailing) {
+			startTrail();
+		}
+		final int mark = mark();
+		assume(i, j, value);
+		final long hash = mHash;
+		int result = -1;
+		if (!isKnownDead(hash)) {
+			fill();
+			result = validateInSearching() ? count - mBits.countEmptyCells() : -1;
+			if (result < 0) {
+				// 試しただけの局面は浅い節を追い出さないようにする
+				remember(hash, Integer.MAX_VALUE);
+			}
+		}
+		undo(mark);
+		if (!trailing) {
+			stopTrail();
+		}
+
+		return result;
+	}
+	private int opposite(int value) {
+		return value == W ? B : W;
+	}
+	private int backjump(int[] marks, int depth, int index, int value) {
+		final int w = mBoard.getW();
+		int level = depth;
+
+		// 失敗した値がどこまで浅い局面でも矛盾するかを順に確かめる
+		undo(marks[depth]);
+		while (level > 0) {
+			save(marks[level - 1]);
+			undo(marks[level - 1]);
+			if (probe(index / w, index % w, value) >= 0) {
+				redo();
+				break;
+			}
+			level--;
+		}
+
+		return level;
+	}
+
+	/**
+	 * Listener
+	 */
+	public void addListener(SearchListener listener) {
+		mListeners = Arrays.copyOf(mListeners, mListeners.length + 1);
+		mListeners[mListeners.length - 1] = listener;
+	}
+	public void removeListener(SearchListener listener) {
+		List<SearchListener> listeners = new ArrayList<SearchListener>(Arrays.asList(mListeners));
+		listeners.remove(listener);
+		mListeners = listeners.toArray(new SearchListener[listeners.size()]);
+	}
+	private long now() {
+		// 監視されていなければ時刻も取らない
+		return mListeners.length > 0 ? System.nanoTime() : 0;
+	}
+	private long lap(int phase, long start) {
+		if (mListeners.length == 0) {
+			return 0;
+		}
+
+		final long now = System.nanoTime();
+		for (SearchListener listener : mListeners) {
+			listener.onPhase(this, phase, now - start);
+		}
+		return now;
+	}
+	private void lapFill(int rule, long start, int puts) {
+		if (mListeners.length == 0) {
+			return;
+		}
+
+		// 規則ごとに、かかった時間と埋めたマスの数を知らせる
+		final long nanos = System.nanoTime() - start;
+		for (SearchListener listener : mListeners) {
+			listener.onFill(this, rule, mPuts - puts, nanos);
+		}
+	}
+	private long lapCheck(int check, long start, boolean failed) {
+		if (mListeners.length == 0) {
+			return 0;
+		}
+
+		final long now = System.nanoTime();
+		for (SearchListener listener : mListeners) {
+			listener.onCheck(this, check, failed, now - start);
+		}
+		return now;
+	}
+	private void notifyNode(int depth) {
+		for (SearchListener listener : mListeners) {
+			listener.onNode(this, depth);
+		}
+	}
+	private void notifyBranch(int i, int j, int value, int depth) {
+		for (SearchListener listener : mListeners) {
+			listener.onBranch(this, i, j, value, depth);
+		}
+	}
+	private void notifyContradiction(int rule) {
+		for (SearchListener listener : mListeners) {
+			listener.onContradiction(this, rule);
+		}
+	}
+	private void notifyPropagate(int cells) {
+		for (SearchListener listener : mListeners) {
+			listener.onPropagate(this, cells);
+		}
+	}
+	private void notifyFound() {
+		for (SearchListener listener : mListeners) {
+			listener.onFound(this);
+		}
+	}
+	private void notifyBackjump(int from, int to) {
+		for (SearchListener listener : mListeners) {
+			listener.onBackjump(this, from, to);
+		}
+	}
+	public void setProgressListener(ProgressListener listener, long interval) {
+		// 外すときは間隔を見ない
+		if (listener != null && interval <= 0) {
+			throw new IllegalArgumentException("progress interval must be positive: " + interval);
+		}
+		mProgress = listener;
+		mProgressInterval = interval;
+	}
+
+	/**
+	 * Budget
+	 */
+	private int countFilledCells() {
+		return mBoard.getW() * mBoard.getH() - mBits.countEmptyCells();
+	}
+	private boolean isOverBudget(int depth) {
+		// 数える前に知らせるので、最初の 0 ノードで始めの盤面も知らせる
+		if (mProgress != null && mNodes % mProgressInterval == 0) {
+			mProgress.onProgress(this, mNodes, depth, countFilledCells());
+		}
+
+		// 1ノードの検査に比べれば時刻を取るのは十分軽い
+		if (mNodeLimit > 0 && mNodes >= mNodeLimit) {
+			mStopped = SolveResult.NODE_LIMIT;
+		} else if (Thread.currentThread().isInterrupted()) {
+			mStopped = SolveResult.INTERRUPTED;
+		} else if (mTimed && System.nanoTime() - mDeadline >= 0) {
+			mStopped = SolveResult.TIMEOUT;
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Solve
+	 */
+	public boolean solve() {
+		Stack<Branch> stack = new Stack<Branch>();
+		stack.add(new Branch(mBits.clone(), mHash, -1, -1, E, 0, null));
+		mNodes = 0;
+
+		while (!stack.isEmpty()) {
+			Branch branch = stack.pop();
+			setBoard(branch.bits, branch.hash);
+			if (branch.i >= 0) {
+				assume(branch.i, branch.j, branch.value);
+			}
+			mNodes++;
+			notifyNode(branch.depth);
+
+			final long entry = mHash;
+			long time = now();
+			final int rule = isKnownDead(entry) ? SearchListener.RULE_TABLE : checkInSearching();
+			time = lap(SearchListener.PHASE_VALIDATE, time);
+
+			if (rule < 0) {
+				fill();
+				time = lap(SearchListener.PHASE_FILL, time);
+
+				final int index = mStrategy.selectCell(this);
+
+				if (index >= 0) {
+					final int i = index / mBoard.getW();
+					final int j = index % mBoard.getW();
+					final int value = mStrategy.selectValue(this, i, j);
+					final Frame frame = mTable != null ? new Frame(entry, branch.depth, branch.parent) : null;
+					lap(SearchListener.PHASE_SELECT, time);
+					notifyBranch(i, j, value, branch.depth);
+
+					// 分岐ごとの複製はビット列だけで済ませる
+					stack.push(new Branch(mBits.clone(), mHash, i, j, opposite(value), branch.depth + 1, frame));
+					stack.push(new Branch(mBits.clone(), mHash, i, j, value, branch.depth + 1, frame));
+					continue;
 				} else if (validate()) {
-					System.out.println("FOUND:");
-					System.out.println(toString());
+					notifyFound();
 					return true;
 				} else {
-					System.out.println("NONE:");
-					System.out.println(toString());
+					notifyContradiction(SearchListener.RULE_FINAL);
 				}
+			} else {
+				notifyContradiction(rule);
 			}
+
+			remember(entry, branch.depth);
+			release(branch.parent);
 		}
 
 		return false;
 	}
+	private int selectCell() {
+		final int w = mBoard.getW();
+		final int index = mStrategy.selectCell(this);
+		if (mScope == null || (index >= 0 && mScope[index])) {
+			return index;
+		}
+
+		// 受け持つ塊の外を選んだら、塊の中で左上の空白マスにする
+		for (int k=0;k<mScope.length;k++) {
+			if (mScope[k] && mBoard.get(k / w, k % w) == E) {
+				return k;
+			}
+		}
+		return -1;
+	}
+	public boolean solveInPlace() {
+		return searchInPlace(1) > 0;
+	}
+	public int countSolutions(int limit) {
+		return searchInPlace(limit);
+	}
+	private int searchInPlace(int limit) {
+		final int w = mBoard.getW();
+		int depth = 0;
+		int[] marks = new int[64];
+		int[] cells = new int[64];
+		int[] values = new int[64];
+		int[] choices = new int[64];
+		int[] founds = new int[64];
+		long[] hashes = new long[64];
+		int replay = 0;
+		int count = 0;
+		Matrix answer = null;
+		mNodes = 0;
+		mMaxDepth = 0;
+		mStopped = -1;
+
+		startTrail();
+		try {
+			while (true) {
+				if (isOverBudget(depth)) {
+					break;
+				}
+				mNodes++;
+				mMaxDepth = Math.max(mMaxDepth, depth);
+				notifyNode(depth);
+
+				final long entry = mHash;
+				long time = now();
+				final int rule = isKnownDead(entry) ? SearchListener.RULE_TABLE : checkInSearching();
+				time = lap(SearchListener.PHASE_VALIDATE, time);
+
+				if (rule < 0) {
+					fill();
+					time = lap(SearchListener.PHASE_FILL, time);
+
+					// 後戻りを飛ばした分は、同じマスを同じ値で決め直す
+					final int index = depth < replay ? cells[depth] : selectCell();
+
+					if (index >= 0) {
+						final int i = index / w;
+						final int j = index % w;
+						int value = depth < replay ? choices[depth] : mStrategy.selectValue(this, i, j);
+						lap(SearchListener.PHASE_SELECT, time);
+
+						if (depth == marks.length) {
+							marks = Arrays.copyOf(marks, depth * 2);
+							cells = Arrays.copyOf(cells, depth * 2);
+							values = Arrays.copyOf(values, depth * 2);
+							choices = Arrays.copyOf(choices, depth * 2);
+							founds = Arrays.copyOf(founds, depth * 2);
+							hashes = Arrays.copyOf(hashes, depth * 2);
+						}
+
+						// もう一方の枝は後戻りしたときに試す
+						// 決め直すマスが学んだ値で埋まっていれば、その値だけを試す
+						if (depth >= replay) {
+							values[depth] = opposite(value);
+						} else if (mBoard.get(i, j) != E) {
+							// 逆の値で埋まっていれば、より深い節で閉じた枝はもう閉じてよいとは限らないので、
+							// 決め直すのはここまでにして次からは選び直す
+							if (mBoard.get(i, j) != value) {
+								replay = depth;
+							}
+							value = mBoard.get(i, j);
+							values[depth] = E;
+						}
+						notifyBranch(i, j, value, depth);
+						marks[depth] = mark();
+						cells[depth] = index;
+						choices[depth] = value;
+						founds[depth] = count;
+						hashes[depth] = entry;
+						depth++;
+						assume(i, j, value);
+						continue;
+					} else if (mScope != null ? checkInSearching() < 0 : validate()) {
+						notifyFound();
+
+						// limit 個見つかるまでは後戻りして探し続ける
+						if (++count == 1 && limit > 1) {
+							answer = mBits.toMatrix();
+						}
+						if (count == limit) {
+							break;
+						}
+					} else {
+						notifyContradiction(SearchListener.RULE_FINAL);
+						remember(entry, depth);
+					}
+				} else {
+					notifyContradiction(rule);
+					remember(entry, depth);
+				}
+
+				// 両方の枝を試し終えた節は、解がなければ記録して戻る
+				replay = 0;
+				while (depth > 0 && values[depth - 1] == E) {
+					depth--;
+					if (founds[depth] == count) {
+						remember(hashes[depth], depth);
+					}
+				}
+				if (depth == 0) {
+					break;
+				}
+
+				// 先に試した値が浅い局面でも矛盾するなら、そこで逆の値に決めてから
+				// 間の分岐を決め直す (解を見つけた後は数え直さないよう戻らない)
+				if (mLearning && count == 0) {
+					final int index = cells[depth - 1];
+					final int level = backjump(marks, depth - 1, index, choices[depth - 1]);
+					if (level < depth - 1) {
+						notifyBackjump(depth, level);
+						assume(index / w, index % w, values[depth - 1]);
+						replay = depth - 1;
+						depth = level;
+						continue;
+					}
+					marks[depth - 1] = mark();
+				}
+
+				undo(marks[depth - 1]);
+				assume(cells[depth - 1] / w, cells[depth - 1] % w, values[depth - 1]);
+				choices[depth - 1] = values[depth - 1];
+				values[depth - 1] = E;
+			}
+		} finally {
+			stopTrail();
+		}
+
+		// 盤面は最初に見つかった解にしておく
+		if (answer != null) {
+			setBoard(answer);
+		}
+		return count;
+	}
+	public SolveResult solve(long timeout, TimeUnit unit, long nodes) {
+		final long start = System.nanoTime();
+		int count = 0;
+
+		// 0 は制限なし、打ち切ったときはその時点の盤面を返す
+		mTimed = timeout > 0;
+		mDeadline = start + unit.toNanos(timeout);
+		mNodeLimit = nodes;
+		try {
+			count = searchInPlace(1);
+		} finally {
+			mTimed = false;
+			mNodeLimit = 0;
+		}
+
+		final int status = mStopped >= 0 ? mStopped :
+				count > 0 ? SolveResult.SOLVED : SolveResult.UNSAT;
+		return result(status, start);
+	}
+	private SolveResult result(int status, long start) {
+		return new SolveResult(status, mBoard.clone(), mNodes, mMaxDepth,
+				countFilledCells(), System.nanoTime() - start);
+	}
+	public boolean solveParallel(int parallelism) {
+		ParallelSolver solver = new ParallelSolver(parallelism);
+		solver.setStrategy(mStrategy);
+		Matrix answer = null;
+
+		try {
+			answer = solver.solve(mBoard);
+		} finally {
+			mNodes = solver.getNodeCount();
+			solver.shutdown();
+		}
+
+		if (answer == null) {
+			return false;
+		}
+
+		setBoard(answer);
+		notifyFound();
+		return true;
+	}
+	public int countSolutions(int limit, int parallelism) {
+		ParallelSolver solver = new ParallelSolver(parallelism);
+		solver.setStrategy(mStrategy);
+		int count = 0;
+
+		try {
+			count = solver.countSolutions(mBoard, limit);
+		} finally {
+			mNodes = solver.getNodeCount();
+			solver.shutdown();
+		}
+
+		if (count > 0) {
+			setBoard(solver.getAnswer());
+		}
+		return count;
+	}
+	public int getComponentCount() {
+		return mComponents;
+	}
+	private int findComponents(int[] labels) {
+		final int w = mBoard.getW();
+		final int h = mBoard.getH();
+		int[] parents = new int[w * h];
+		for (int index=0;index<w*h;index++) {
+			parents[index] = index;
+		}
+
+		// 斜めに接する空白マスは2x2で、空白マスに接する白は島の大きさで影響し合う
+		for (int i=0;i<h;i++) {
+			for (int j=0;j<w;j++) {
+				final int value = mBoard.get(i, j);
+				if (isBlack(value)) {
+					continue;
+				}
+				if (j < w - 1 && !isBlack(mBoard.get(i, j + 1))) {
+					union(parents, i * w + j, i * w + j + 1);
+				}
+				if (i < h - 1 && !isBlack(mBoard.get(i + 1, j))) {
+					union(parents, i * w + j, (i + 1) * w + j);
+				}
+				if (value != E || i == h - 1) {
+					continue;
+				}
+				if (j > 0 && mBoard.get(i + 1, j - 1) == E) {
+					union(parents, i * w + j, (i + 1) * w + j - 1);
+				}
+				if (j < w - 1 && mBoard.get(i + 1, j + 1) == E) {
+					union(parents, i * w + j, (i + 1) * w + j + 1);
+				}
+			}
+		}
+
+		// 空白マスを含む組にだけ番号を振る
+		int count = 0;
+		int[] ids = new int[w * h];
+		Arrays.fill(ids, -1);
+		for (int index=0;index<w*h;index++) {
+			labels[index] = -1;
+			if (mBoard.get(index / w, index % w) == E) {
+				final int root = find(parents, index);
+				if (ids[root] < 0) {
+					ids[root] = count++;
+				}
+				labels[index] = ids[root];
+			}
+		}
+		return count;
+	}
+	private static int find(int[] parents, int index) {
+		while (parents[index] != index) {
+			parents[index] = parents[parents[index]];
+			index = parents[index];
+		}
+		return index;
+	}
+	private static void union(int[] parents, int a, int b) {
+		parents[find(parents, a)] = find(parents, b);
+	}
+	public boolean solveDecomposed(int parallelism) throws InterruptedException {
+		final int w = mBoard.getW();
+		final int h = mBoard.getH();
+		mNodes = 0;
+		mComponents = 0;
+
+		// 伝播させた後の盤面を、互いに影響しない空白マスの塊に分ける
+		if (!validateInSearching()) {
+			return false;
+		}
+		fill();
+		if (!validateInSearching()) {
+			return false;
+		}
+		final int[] labels = new int[w * h];
+		mComponents = findComponents(labels);
+		if (mComponents <= 1) {
+			return solveInPlace();
+		}
+
+		final Matrix board = mBoard.clone();
+		final Nurikabe[] children = new Nurikabe[mComponents];
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, mComponents)));
+		CompletionService<Nurikabe> completion = new ExecutorCompletionService<Nurikabe>(executor);
+		boolean solvable = true;
+
+		try {
+			// 塊ごとに、その中のマスだけを分岐させて解く
+			for (int c=0;c<mComponents;c++) {
+				final Nurikabe child = new Nurikabe(board.clone());
+				child.setStrategy(mStrategy);
+				child.setLearning(mLearning);
+				child.setIslandLimit(mIslandLimit);
+				child.mScope = new boolean[w * h];
+				for (int index=0;index<w*h;index++) {
+					child.mScope[index] = labels[index] == c;
+				}
+				children[c] = child;
+
+				completion.submit(new Callable<Nurikabe>() {
+					@Override
+					public Nurikabe call() {
+						return child.solveInPlace() ? child : null;
+					}
+				});
+			}
+
+			// どれか1つでも解がなければ全体にも解はない
+			for (int c=0;c<mComponents&&solvable;c++) {
+				solvable = completion.take().get() != null;
+			}
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		for (Nurikabe child : children) {
+			mNodes += child.getNodeCount();
+		}
+		if (!solvable) {
+			return false;
+		}
+
+		// 各塊の解を合わせ、黒のつながりを含めて盤面全体で確かめる
+		Matrix answer = board.clone();
+		for (int index=0;index<w*h;index++) {
+			if (labels[index] >= 0) {
+				answer.put(index / w, index % w, children[labels[index]].mBoard.get(index / w, index % w));
+			}
+		}
+		setBoard(answer);
+		if (validate()) {
+			notifyFound();
+			return true;
+		}
+
+		// 合わせた解で黒がつながらなければ、伝播後の盤面から全体を探索する
+		final long nodes = mNodes;
+		setBoard(board);
+		final boolean solved = solveInPlace();
+		mNodes += nodes;
+		return solved;
+	}
+	static public void compare(Matrix board) {
+		// 戦略ごとに探索したノード数を比べる
+		for (String name : Strategies.NAMES) {
+			Nurikabe nurikabe = new Nurikabe(board.clone());
+			nurikabe.setStrategy(Strategies.get(name));
+
+			long start = System.nanoTime();
+			boolean solved = nurikabe.solveInPlace();
+			long time = (System.nanoTime() - start) / 1000000;
+
+			System.out.println(String.format("%s: solved=%b, nodes=%d, time=%dms",
+					name, solved, nurikabe.getNodeCount(), time));
+		}
+	}
 
 	/**
 	 * Object
@@ -798,12 +1776,18 @@ public class Nurikabe {
 		final int w = mBoard.getW();
 		final int h = mBoard.getH();
 
+		// 1文字で表せない数字があればカンマ区切りで出力する
+		final boolean delimited = mMaxNumber > Utils.MAX_CELL_NUMBER;
+
 		StringBuilder sb = new StringBuilder();
 		for (int i=0;i<h;i++) {
 			for (int j=0;j<w;j++) {
 				int value = mBoard.get(i, j);
 				sb.append(Utils.valueToString(value));
 
+				if (delimited && j != w - 1) {
+					sb.append(",");
+				}
 				// 最終行は改行をスキップ
 				if (j == w - 1 && i != h - 1) {
 					sb.append("\n");
@@ -816,11 +1800,253 @@ public class Nurikabe {
 	/**
 	 * Main
 	 */
+	static private SolutionCache.Solver solver(final Nurikabe nurikabe, final String mode,
+			final boolean decompose, final int parallelism, final long timeout, final long budget) {
+		return new SolutionCache.Solver() {
+			@Override
+			public SolveResult solve() {
+				if (timeout > 0 || budget > 0) {
+					return nurikabe.solve(timeout, TimeUnit.MILLISECONDS, budget);
+				}
+
+				// 予算なしの解き方も、予算付きと同じ結果の形にそろえる
+				final long start = System.nanoTime();
+				boolean solved = false;
+				try {
+					if (decompose) {
+						solved = nurikabe.solveDecomposed(parallelism);
+					} else if (mode.equals("-p")) {
+						solved = nurikabe.solveParallel(parallelism);
+					} else if (mode.equals("-t")) {
+						solved = nurikabe.solveInPlace();
+					} else {
+						solved = nurikabe.solve();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return nurikabe.result(SolveResult.INTERRUPTED, start);
+				}
+				return nurikabe.result(solved ? SolveResult.SOLVED : SolveResult.UNSAT, start);
+			}
+		};
+	}
+	static private void saveOnExit(final SolutionCache cache, final File file) {
+		// サーバーは止められるまで動くので、終了するときに書き出す
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				try {
+					cache.save(file);
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		});
+	}
 	static public void main(String[] args) {
 		try {
+			String mode = "";
+			String path = null;
+			boolean batch = false;
+			boolean ordered = true;
+			boolean metrics = false;
+			long interval = 0;
+			int limit = 0;
+			int entries = 0;
+			long timeout = 0;
+			boolean learning = false;
+			int islands = 0;
+			String report = null;
+			int port = -1;
+			int cacheEntries = 0;
+			boolean decompose = false;
+			String cachePath = null;
+			long budget = 0;
+			Strategy strategy = Strategies.TOP_LEFT;
+			int parallelism = Runtime.getRuntime().availableProcessors();
+
+			// -p [並列数] で並列探索、-t で盤面を戻しながら探索する
+			// -s [戦略] で分岐の選び方を変え、-c で戦略ごとのノード数を比べる
+			// -b [ディレクトリ] で複数の問題を -p の並列数でまとめて解き、-u で解けた順に出力する
+			// -v [間隔] で探索中の盤面を間引いて出力し、-m で探索の統計を出力する
+			// -n [上限] で解の数を上限まで数える (-p と組み合わせると並列に数える)
+			// -z [エントリ数] で解のないと分かった局面を表に記録して飛ばす
+			// -d [ミリ秒] と -e [ノード数] で探索を打ち切る
+			// -l で矛盾した値を浅い局面で確かめて後戻りを飛ばす
+			// -i [上限] で数字ごとに島の置き方を並べて絞り込む
+			// -r [json|csv] で規則ごとの呼び出し回数、時間、埋めたマスと矛盾を出力する
+			// -w [ポート] で POST /solve に送られた問題を -p の並列数まで同時に解き続ける
+			// -k [エントリ数] で解いた問題を回転と鏡映をならして覚え、-f [ファイル] に保存する
+			// -x で伝播後に互いに影響しない塊に分け、-p の並列数で塊ごとに解く
+			for (int k=0;k<args.length;k++) {
+				if (args[k].equals("-p")) {
+					mode = args[k];
+					if (k + 1 < args.length && args[k + 1].matches("\\d+")) {
+						parallelism = Integer.parseInt(args[++k]);
+					}
+				} else if (args[k].equals("-t") || args[k].equals("-c")) {
+					mode = args[k];
+				} else if (args[k].equals("-s") && k + 1 < args.length) {
+					strategy = Strategies.get(args[++k]);
+				} else if (args[k].equals("-b")) {
+					batch = true;
+					if (k + 1 < args.length && !args[k + 1].startsWith("-")) {
+						path = args[++k];
+					}
+				} else if (args[k].equals("-u")) {
+					ordered = false;
+				} else if (args[k].equals("-v")) {
+					interval = 1;
+					if (k + 1 < args.length && args[k + 1].matches("\\d+")) {
+						interval = Long.parseLong(args[++k]);
+					}
+				} else if (args[k].equals("-i")) {
+					islands = 1 << 14;
+					if (k + 1 < args.length && args[k + 1].matches("\\d+")) {
+						islands = Integer.parseInt(args[++k]);
+					}
+				} else if (args[k].equals("-l")) {
+					learning = true;
+				} else if (args[k].equals("-x")) {
+					decompose = true;
+				} else if (args[k].equals("-m")) {
+					metrics = true;
+				} else if (args[k].equals("-w")) {
+					port = 8080;
+					if (k + 1 < args.length && args[k + 1].matches("\\d+")) {
+						port = Integer.parseInt(args[++k]);
+					}
+				} else if (args[k].equals("-k")) {
+					cacheEntries = 1 << 12;
+					if (k + 1 < args.length && args[k + 1].matches("\\d+")) {
+						cacheEntries = Integer.parseInt(args[++k]);
+					}
+				} else if (args[k].equals("-f") && k + 1 < args.length) {
+					cachePath = args[++k];
+				} else if (args[k].equals("-r")) {
+					report = "text";
+					if (k + 1 < args.length && args[k + 1].matches("json|csv")) {
+						report = args[++k];
+					}
+				} else if (args[k].equals("-z")) {
+					entries = 1 << 20;
+					if (k + 1 < args.length && args[k + 1].matches("\\d+")) {
+						entries = Integer.parseInt(args[++k]);
+					}
+				} else if (args[k].equals("-d") && k + 1 < args.length) {
+					timeout = Long.parseLong(args[++k]);
+				} else if (args[k].equals("-e") && k + 1 < args.length) {
+					budget = Long.parseLong(args[++k]);
+				} else if (args[k].equals("-n")) {
+					limit = 2;
+					if (k + 1 < args.length && args[k + 1].matches("\\d+")) {
+						limit = Integer.parseInt(args[++k]);
+					}
+				}
+			}
+
+			SolutionCache cache = null;
+			if (cacheEntries > 0) {
+				cache = new SolutionCache(cacheEntries);
+				if (cachePath != null && new File(cachePath).isFile()) {
+					cache.load(new File(cachePath));
+				}
+			}
+
+			if (port >= 0) {
+				SolverServer server = new SolverServer(port, parallelism);
+				server.setStrategy(strategy);
+				server.setLimits(timeout, budget);
+				server.setCache(cache);
+				if (cache != null && cachePath != null) {
+					saveOnExit(cache, new File(cachePath));
+				}
+				server.start();
+				System.out.println(String.format("listening on http://localhost:%d/solve", server.getPort()));
+				return;
+			}
+			if (batch) {
+				BatchSolver solver = new BatchSolver(parallelism);
+				solver.setOrdered(ordered);
+				solver.setStrategy(strategy);
+				solver.setLimits(timeout, budget);
+				solver.setReport(report);
+				solver.setCache(cache);
+
+				if (path != null) {
+					solver.solve(new File(path), System.out);
+				} else {
+					solver.solve(System.in, System.out);
+				}
+				if (cache != null && cachePath != null) {
+					cache.save(new File(cachePath));
+				}
+				return;
+			}
+
 			Matrix matrix = Utils.readNurikabe(System.in);
 			Nurikabe nurikabe = new Nurikabe(matrix);
-			nurikabe.solve();
+			nurikabe.setStrategy(strategy);
+			SearchMetrics listener = new SearchMetrics();
+			if (metrics) {
+				nurikabe.addListener(listener);
+			}
+			if (interval > 0) {
+				nurikabe.addListener(new BoardDumper(System.out, interval));
+			}
+			RuleProfiler profiler = new RuleProfiler();
+			if (report != null) {
+				nurikabe.addListener(profiler);
+			}
+			if (entries > 0) {
+				nurikabe.setTranspositionTable(new TranspositionTable(entries));
+			}
+			nurikabe.setLearning(learning);
+			nurikabe.setIslandLimit(islands);
+
+			final boolean budgeted = timeout > 0 || budget > 0;
+			if (!budgeted && limit > 0) {
+				final int count = mode.equals("-p") ?
+						nurikabe.countSolutions(limit, parallelism) :
+						nurikabe.countSolutions(limit);
+				System.out.println(String.format("solutions=%d%s, nodes=%d",
+						count, count == limit ? "+" : "", nurikabe.getNodeCount()));
+				System.out.println(count > 0 ? "FOUND:" : "NONE:");
+				System.out.println(nurikabe.toString());
+			} else if (!budgeted && !decompose && mode.equals("-c")) {
+				compare(matrix);
+				return;
+			} else {
+				// 覚えた解から出力を作れるのは、探索の様子を出さないときだけ
+				SolutionCache.Solver solver = solver(nurikabe, mode, decompose, parallelism, timeout, budget);
+				final boolean reuse = cache != null && !metrics && report == null && interval == 0;
+				SolveResult result = reuse ? cache.solve(matrix, solver) : solver.solve();
+
+				System.out.println(result.isSolved() ? "FOUND:" : result.isStopped() ? "STOPPED:" : "NONE:");
+				System.out.println(new Nurikabe(result.getBoard()).toString());
+				if (budgeted) {
+					System.out.println(result.toString());
+				}
+				if (reuse && cachePath != null && result.isSolved() && !result.isCached()) {
+					cache.save(new File(cachePath));
+				}
+				if (decompose && metrics) {
+					System.out.println(String.format("components=%d, nodes=%d",
+							nurikabe.getComponentCount(), nurikabe.getNodeCount()));
+				}
+			}
+
+			if (metrics) {
+				System.out.println(listener.toString());
+				if (entries > 0) {
+					System.out.println(nurikabe.getTranspositionTable().toString());
+				}
+			}
+			if (report != null) {
+				System.out.println(RuleProfiler.format(profiler, report, "stdin"));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -0,0 +1,149 @@
+package com.tondol.nurikabe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ParallelSolver {
+	private ForkJoinPool mPool = null;
+	private AtomicReference<Matrix> mAnswer = null;
+	private AtomicInteger mSolutions = new AtomicInteger();
+	private AtomicLong mNodes = new AtomicLong();
+	private ThreadLocal<Nurikabe> mSolvers = null;
+	private int mLimit = 1;
+	private Strategy mStrategy = Strategies.TOP_LEFT;
+
+	public ParallelSolver() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	public ParallelSolver(int parallelism) {
+		mPool = new ForkJoinPool(parallelism);
+	}
+
+	public int getParallelism() {
+		return mPool.getParallelism();
+	}
+	public void setStrategy(Strategy strategy) {
+		mStrategy = strategy;
+	}
+	public long getNodeCount() {
+		return mNodes.get();
+	}
+	public Matrix getAnswer() {
+		return mAnswer.get();
+	}
+
+	private boolean isStopped() {
+		// 他のワーカーと合わせて上限まで解を見つけていれば打ち切る
+		return mSolutions.get() >= mLimit;
+	}
+
+	/**
+	 * Task
+	 */
+	private class Task extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private BitBoard mBits = null;
+		private int mI = -1;
+		private int mJ = -1;
+		private int mValue = Nurikabe.E;
+
+		public Task(BitBoard bits) {
+			mBits = bits;
+		}
+		public Task(BitBoard bits, int i, int j, int value) {
+			mBits = bits;
+			mI = i;
+			mJ = j;
+			mValue = value;
+		}
+
+		@Override
+		protected void compute() {
+			if (isStopped()) {
+				return;
+			}
+
+			// ワーカーごとの盤面を書き戻し、先に試す枝はそのまま同じ盤面で潜る
+			Nurikabe nurikabe = mSolvers.get();
+			nurikabe.restore(mBits);
+			mBits = null;
+			if (mI >= 0) {
+				nurikabe.assume(mI, mJ, mValue);
+			}
+
+			List<Task> forked = new ArrayList<Task>();
+			while (!isStopped()) {
+				mNodes.incrementAndGet();
+				if (!nurikabe.validateInSearching()) {
+					break;
+				}
+
+				nurikabe.fill();
+				if (isStopped()) {
+					break;
+				}
+
+				final int index = mStrategy.selectCell(nurikabe);
+				if (index < 0) {
+					if (nurikabe.validate() && mSolutions.incrementAndGet() <= mLimit) {
+						mAnswer.compareAndSet(null, nurikabe.getBoard().clone());
+					}
+					break;
+				}
+
+				// 後回しの枝だけ盤面を写して他のワーカーに盗ませる
+				final int w = nurikabe.getBoard().getW();
+				final int value = mStrategy.selectValue(nurikabe, index / w, index % w);
+				final int other = value == Nurikabe.W ? Nurikabe.B : Nurikabe.W;
+				Task task = new Task(nurikabe.snapshot(), index / w, index % w, other);
+				task.fork();
+				forked.add(task);
+				nurikabe.assume(index / w, index % w, value);
+			}
+
+			// 打ち切ったなら、盗まれていない枝は実行せずに取り下げる
+			for (int k=forked.size()-1;k>=0;k--) {
+				final Task task = forked.get(k);
+				if (isStopped() && task.tryUnfork()) {
+					continue;
+				}
+				task.join();
+			}
+		}
+	}
+
+	/**
+	 * Solve
+	 */
+	public Matrix solve(Matrix board) {
+		countSolutions(board, 1);
+		return mAnswer.get();
+	}
+	public int countSolutions(final Matrix board, int limit) {
+		mAnswer = new AtomicReference<Matrix>();
+		mSolutions.set(0);
+		mNodes.set(0);
+		mLimit = limit;
+
+		// ワーカーごとに解き手をひとつだけ作って使い回す
+		final Nurikabe root = new Nurikabe(board.clone());
+		mSolvers = new ThreadLocal<Nurikabe>() {
+			@Override
+			protected Nurikabe initialValue() {
+				Nurikabe nurikabe = new Nurikabe(board.clone());
+				nurikabe.setStrategy(mStrategy);
+				return nurikabe;
+			}
+		};
+		mPool.invoke(new Task(root.snapshot()));
+		return Math.min(mSolutions.get(), limit);
+	}
+	public void shutdown() {
+		mPool.shutdown();
+	}
+}
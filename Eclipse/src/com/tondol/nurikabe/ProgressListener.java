@@ -0,0 +1,5 @@
+package com.tondol.nurikabe;
+
+public interface ProgressListener {
+	public void onProgress(Nurikabe nurikabe, long nodes, int depth, int filled);
+}
@@ -0,0 +1,357 @@
+package com.tondol.nurikabe;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+public class PuzzleReader implements Closeable {
+	private static final int BUFFER_SIZE = 1 << 16;
+	static final int MAX_CELLS = 1 << 24;
+	private static final int[] VALUES = new int[256];
+
+	static {
+		// 数字と空白、黒以外の文字は空白マスとして読む
+		// 10以上の数字は36進の英字で表す
+		VALUES[' '] = Nurikabe.W;
+		VALUES['#'] = Nurikabe.B;
+		for (int c='1';c<='9';c++) {
+			VALUES[c] = c - '0';
+		}
+		for (int c='a';c<='z';c++) {
+			VALUES[c] = c - 'a' + 10;
+			VALUES[c - 'a' + 'A'] = c - 'a' + 10;
+		}
+	}
+
+	private ReadableByteChannel mChannel = null;
+	private RandomAccessFile mFile = null;
+	private ByteBuffer mMapped = null;
+	private byte[] mBytes = new byte[BUFFER_SIZE];
+	private int mPosition = 0;
+	private int mLimit = 0;
+	private int mLine = 0;
+	private byte[] mRow = null;
+	private byte[] mRowBytes = new byte[256];
+	private int mRowOffset = 0;
+	private int mRowLength = 0;
+	private int[] mNext = null;
+
+	public PuzzleReader(InputStream in) {
+		mChannel = Channels.newChannel(in);
+	}
+	public PuzzleReader(File file) throws IOException {
+		mFile = new RandomAccessFile(file, "r");
+		FileChannel channel = mFile.getChannel();
+
+		// 大きすぎるファイルは写像せずに順に読む
+		if (channel.size() <= Integer.MAX_VALUE) {
+			mMapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} else {
+			mChannel = channel;
+		}
+	}
+
+	static int decode(int c) {
+		return c >= 0 && c < VALUES.length ? VALUES[c] : Nurikabe.E;
+	}
+
+	/**
+	 * Buffer
+	 */
+	private int next() throws IOException {
+		if (mPosition == mLimit && !refill()) {
+			return -1;
+		}
+		return mBytes[mPosition++] & 0xff;
+	}
+	private int peek() throws IOException {
+		if (mPosition == mLimit && !refill()) {
+			return -1;
+		}
+		return mBytes[mPosition] & 0xff;
+	}
+	private boolean refill() throws IOException {
+		int count = -1;
+
+		// 写像したファイルからもまとめて配列に写して読む
+		if (mMapped != null) {
+			count = Math.min(mBytes.length, mMapped.remaining());
+			mMapped.get(mBytes, 0, count);
+		} else {
+			ByteBuffer buffer = ByteBuffer.wrap(mBytes);
+			do {
+				count = mChannel.read(buffer);
+			} while (count == 0);
+		}
+
+		mPosition = 0;
+		mLimit = Math.max(count, 0);
+		return mLimit > 0;
+	}
+	private void skipLine() throws IOException {
+		int c = next();
+		while (c >= 0 && c != '\n') {
+			c = next();
+		}
+		mLine++;
+	}
+	private void readRow() throws IOException {
+		int start = mPosition;
+
+		// 行がバッファに収まっていれば写さずにそのまま読む
+		for (int k=start;k<mLimit;k++) {
+			if (mBytes[k] == '\n') {
+				mRow = mBytes;
+				mRowOffset = start;
+				mRowLength = k - start;
+				mPosition = k + 1;
+				endRow();
+				return;
+			}
+		}
+
+		// バッファの境界をまたぐ行は作業用の配列に写す
+		int length = 0;
+		while (true) {
+			if (mPosition == mLimit && !refill()) {
+				break;
+			}
+			final int c = mBytes[mPosition++];
+			if (c == '\n') {
+				break;
+			}
+			if (length == mRowBytes.length) {
+				mRowBytes = Arrays.copyOf(mRowBytes, length * 2);
+			}
+			mRowBytes[length++] = (byte) c;
+		}
+		mRow = mRowBytes;
+		mRowOffset = 0;
+		mRowLength = length;
+		endRow();
+	}
+	private void endRow() {
+		if (mRowLength > 0 && mRow[mRowOffset + mRowLength - 1] == '\r') {
+			mRowLength--;
+		}
+		mLine++;
+	}
+	private boolean isDelimited() {
+		for (int k=mRowOffset;k<mRowOffset+mRowLength;k++) {
+			if (mRow[k] == ',') {
+				return true;
+			}
+		}
+		return false;
+	}
+	private boolean isDigit(int c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * Read
+	 */
+	private int readNumber() throws IOException {
+		long number = 0;
+
+		// 大きすぎる数は上限で止め、盤面の大きさを調べるところで弾く
+		while (isDigit(peek())) {
+			number = Math.min(number * 10 + (next() - '0'), Integer.MAX_VALUE);
+		}
+		return (int) number;
+	}
+	private boolean readHeader(int[] size) throws IOException {
+		// 前の問題の最終行に付いていた見出しがあればそれを使う
+		if (mNext != null) {
+			size[0] = mNext[0];
+			size[1] = mNext[1];
+			mNext = null;
+			return true;
+		}
+
+		int c = peek();
+
+		// 空行を読み飛ばす
+		while (c == '\r' || c == '\n' || c == ' ' || c == '\t') {
+			next();
+			if (c == '\n') {
+				mLine++;
+			}
+			c = peek();
+		}
+		if (c < 0) {
+			return false;
+		}
+
+		// 行頭の記号を飛ばして、空白で区切られた2つの数を読む
+		while (c >= 0 && c != '\n' && !isDigit(c)) {
+			next();
+			c = peek();
+		}
+		if (!isDigit(c)) {
+			throw new IOException(String.format("line %d: expected #H W", mLine + 1));
+		}
+		size[0] = readNumber();
+
+		c = peek();
+		if (c != ' ' && c != '\t') {
+			throw new IOException(String.format("line %d: expected #H W", mLine + 1));
+		}
+		while (c == ' ' || c == '\t') {
+			next();
+			c = peek();
+		}
+		if (!isDigit(c)) {
+			throw new IOException(String.format("line %d: expected #H W", mLine + 1));
+		}
+		size[1] = readNumber();
+
+		skipLine();
+		return true;
+	}
+	private int parseNumber(int start, int end) {
+		long number = 0;
+		for (int k=start;k<end;k++) {
+			number = Math.min(number * 10 + (mRow[k] - '0'), Integer.MAX_VALUE);
+		}
+		return (int) number;
+	}
+	private int findHeader(int[] size) {
+		int k = mRowOffset + mRowLength;
+
+		// 行末の "#H W" を後ろから探し、見つかれば '#' の位置を返す
+		while (k > mRowOffset && (mRow[k - 1] == ' ' || mRow[k - 1] == '\t')) {
+			k--;
+		}
+		final int end = k;
+		while (k > mRowOffset && isDigit(mRow[k - 1])) {
+			k--;
+		}
+		if (k == end) {
+			return -1;
+		}
+		size[1] = parseNumber(k, end);
+
+		final int space = k;
+		while (k > mRowOffset && (mRow[k - 1] == ' ' || mRow[k - 1] == '\t')) {
+			k--;
+		}
+		final int middle = k;
+		while (k > mRowOffset && isDigit(mRow[k - 1])) {
+			k--;
+		}
+		if (space == middle || k == middle) {
+			return -1;
+		}
+		size[0] = parseNumber(k, middle);
+
+		if (k == mRowOffset || mRow[k - 1] != '#') {
+			return -1;
+		}
+		return k - 1;
+	}
+	private void cutHeader(int w) {
+		int[] size = new int[2];
+		final int index = findHeader(size);
+		if (index < 0) {
+			return;
+		}
+
+		// 末尾に改行のないファイルを連結すると、次の問題の見出しが最終行に付く
+		// カンマ区切りならマスの途中、そうでなければ w マスより後ろにあるときだけ見出しとみなす
+		final boolean delimited = isDelimited();
+		if (delimited ? mRow[index - 1] == ',' : index - mRowOffset < w) {
+			return;
+		}
+		mRowLength = index - mRowOffset;
+		mNext = size;
+	}
+	private void readTokens(int[] values, int offset, int w) throws IOException {
+		final int end = mRowOffset + mRowLength;
+		int k = mRowOffset;
+
+		// カンマ区切りの行は、1文字のマスか10進の数を並べたものとして読む
+		for (int j=0;j<w;j++) {
+			if (k > end) {
+				throw new IOException(String.format("line %d: expected %d cells, found %d", mLine, w, j));
+			}
+			int start = k;
+			while (k < end && mRow[k] != ',') {
+				k++;
+			}
+			values[offset + j] = decodeToken(start, k, values.length);
+			k++;
+		}
+	}
+	private int decodeToken(int start, int end, int cells) throws IOException {
+		if (end - start == 1) {
+			return VALUES[mRow[start] & 0xff];
+		}
+
+		// 盤面のマスの数より大きな数字は満たせないので、あふれる前に弾く
+		int number = 0;
+		for (int k=start;k<end;k++) {
+			if (!isDigit(mRow[k])) {
+				throw new IOException(String.format("line %d: invalid cell '%s'",
+						mLine, new String(mRow, start, end - start, "US-ASCII")));
+			}
+			number = number * 10 + (mRow[k] - '0');
+			if (number > cells) {
+				throw new IOException(String.format("line %d: cell '%s' exceeds %d cells",
+						mLine, new String(mRow, start, end - start, "US-ASCII"), cells));
+			}
+		}
+		return number;
+	}
+	public Matrix read() throws IOException {
+		int[] size = new int[2];
+		if (!readHeader(size)) {
+			return null;
+		}
+
+		final int h = size[0];
+		final int w = size[1];
+		if (h <= 0 || w <= 0) {
+			throw new IOException(String.format("line %d: invalid size %dx%d", mLine, h, w));
+		}
+		if ((long) w * h > MAX_CELLS) {
+			throw new IOException(String.format("line %d: too large %dx%d, at most %d cells", mLine, h, w, MAX_CELLS));
+		}
+
+		// 表引きでそのまま盤面の配列に書き込む
+		int[] values = new int[w * h];
+		for (int i=0;i<h;i++) {
+			readRow();
+			if (i == h - 1) {
+				cutHeader(w);
+			}
+			if (isDelimited()) {
+				readTokens(values, i * w, w);
+				continue;
+			}
+			if (mRowLength < w) {
+				throw new IOException(String.format("line %d: expected %d cells, found %d", mLine, w, mRowLength));
+			}
+			for (int j=0;j<w;j++) {
+				values[i * w + j] = VALUES[mRow[mRowOffset + j] & 0xff];
+			}
+		}
+
+		return new Matrix(w, h, values);
+	}
+	@Override
+	public void close() throws IOException {
+		if (mFile != null) {
+			mFile.close();
+		} else {
+			mChannel.close();
+		}
+	}
+}
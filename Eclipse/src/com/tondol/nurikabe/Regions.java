@@ -0,0 +1,273 @@
+package com.tondol.nurikabe;
+
+import java.util.Arrays;
+
+public class Regions {
+	private int mW = 0;
+	private int mH = 0;
+	private Matrix mBoard = null;
+	private int[] mParent = null;
+	private int[] mSize = null;
+	private int[] mClue = null;
+	private int[] mClues = null;
+	private int[] mNext = null;
+	private int[] mStamp = null;
+	private int mStampId = 0;
+	private int[] mLog = null;
+	private int mLogSize = 0;
+
+	public Regions(Matrix board) {
+		reset(board);
+	}
+
+	/**
+	 * Build
+	 */
+	public void reset(Matrix board) {
+		final int w = board.getW();
+		final int h = board.getH();
+
+		if (mParent == null || mParent.length != w * h) {
+			mParent = new int[w * h];
+			mSize = new int[w * h];
+			mClue = new int[w * h];
+			mClues = new int[w * h];
+			mNext = new int[w * h];
+			mStamp = new int[w * h];
+		}
+
+		mW = w;
+		mH = h;
+		mBoard = board;
+		Arrays.fill(mStamp, 0);
+		mStampId = 0;
+
+		// 作り直した森は取り消しの対象にしない
+		int[] log = mLog;
+		mLog = null;
+		for (int index=0;index<w*h;index++) {
+			init(index);
+		}
+		for (int i=0;i<h;i++) {
+			for (int j=0;j<w;j++) {
+				if (i > 0) {
+					union(i, j, i - 1, j);
+				}
+				if (j > 0) {
+					union(i, j, i, j - 1);
+				}
+			}
+		}
+		mLog = log;
+		mLogSize = 0;
+	}
+	private void init(int index) {
+		int value = mBoard.get(index / mW, index % mW);
+
+		mParent[index] = index;
+		mNext[index] = index;
+		mSize[index] = isFilled(value) ? 1 : 0;
+		mClue[index] = isNumber(value) ? value : 0;
+		mClues[index] = isNumber(value) ? 1 : 0;
+	}
+
+	/**
+	 * Update
+	 */
+	public void add(int i, int j) {
+		// 空白マスだったセルが塗られたときに呼び出す
+		init(i * mW + j);
+		log(ADD, i * mW + j, 0, 0);
+
+		if (i > 0) {
+			union(i, j, i - 1, j);
+		}
+		if (j > 0) {
+			union(i, j, i, j - 1);
+		}
+		if (i < mH - 1) {
+			union(i, j, i + 1, j);
+		}
+		if (j < mW - 1) {
+			union(i, j, i, j + 1);
+		}
+	}
+	private void union(int i1, int j1, int i2, int j2) {
+		int value1 = mBoard.get(i1, j1);
+		int value2 = mBoard.get(i2, j2);
+		if (!isFilled(value1) || !isFilled(value2) ||
+				isBlack(value1) != isBlack(value2)) {
+			return;
+		}
+
+		int root1 = find(i1 * mW + j1);
+		int root2 = find(i2 * mW + j2);
+		if (root1 == root2) {
+			return;
+		}
+
+		// 小さい方を大きい方の下につなぐ
+		if (mSize[root1] < mSize[root2]) {
+			int tmp = root1;
+			root1 = root2;
+			root2 = tmp;
+		}
+		log(UNION, root1, root2, mClue[root1]);
+		mParent[root2] = root1;
+		mSize[root1] += mSize[root2];
+		mClues[root1] += mClues[root2];
+		if (mClue[root1] == 0) {
+			mClue[root1] = mClue[root2];
+		}
+
+		// 循環リストを連結する
+		int next = mNext[root1];
+		mNext[root1] = mNext[root2];
+		mNext[root2] = next;
+	}
+
+	/**
+	 * Undo
+	 */
+	private static final int ADD = 0;
+	private static final int UNION = 1;
+
+	public void setLogging(boolean logging) {
+		mLog = logging ? new int[64] : null;
+		mLogSize = 0;
+	}
+	public int mark() {
+		return mLogSize;
+	}
+	public void undo(int mark) {
+		// 併合の逆順にたどれば元の森に戻る
+		while (mLogSize > mark) {
+			mLogSize -= 4;
+			final int type = mLog[mLogSize];
+			final int a = mLog[mLogSize + 1];
+			final int b = mLog[mLogSize + 2];
+
+			if (type == ADD) {
+				mParent[a] = a;
+				mNext[a] = a;
+				mSize[a] = 0;
+				mClue[a] = 0;
+				mClues[a] = 0;
+			} else {
+				int next = mNext[a];
+				mNext[a] = mNext[b];
+				mNext[b] = next;
+				mParent[b] = b;
+				mSize[a] -= mSize[b];
+				mClues[a] -= mClues[b];
+				mClue[a] = mLog[mLogSize + 3];
+			}
+		}
+	}
+	private void log(int type, int a, int b, int c) {
+		if (mLog == null) {
+			return;
+		}
+		if (mLogSize + 4 > mLog.length) {
+			mLog = Arrays.copyOf(mLog, mLog.length * 2);
+		}
+
+		mLog[mLogSize++] = type;
+		mLog[mLogSize++] = a;
+		mLog[mLogSize++] = b;
+		mLog[mLogSize++] = c;
+	}
+
+	/**
+	 * Query
+	 */
+	public int find(int index) {
+		// 記録中は元に戻せるよう経路圧縮をしない
+		if (mLog != null) {
+			while (mParent[index] != index) {
+				index = mParent[index];
+			}
+			return index;
+		}
+
+		while (mParent[index] != index) {
+			mParent[index] = mParent[mParent[index]];
+			index = mParent[index];
+		}
+		return index;
+	}
+	public int find(int i, int j) {
+		return find(i * mW + j);
+	}
+	public boolean isRoot(int index) {
+		return mParent[index] == index && mSize[index] > 0;
+	}
+	public boolean isWhite(int root) {
+		return !isBlack(mBoard.get(root / mW, root % mW));
+	}
+	public int size(int root) {
+		return mSize[root];
+	}
+	public int clue(int root) {
+		return mClue[root];
+	}
+	public int clues(int root) {
+		return mClues[root];
+	}
+	public int next(int index) {
+		return mNext[index];
+	}
+	public int liberties(int root) {
+		int count = 0;
+		int index = root;
+
+		// 同じ空白マスを二重に数えないように印をつける
+		if (++mStampId == Integer.MAX_VALUE) {
+			Arrays.fill(mStamp, 0);
+			mStampId = 1;
+		}
+		do {
+			final int i = index / mW;
+			final int j = index % mW;
+
+			if (i > 0) {
+				count += mark(i - 1, j);
+			}
+			if (j > 0) {
+				count += mark(i, j - 1);
+			}
+			if (i < mH - 1) {
+				count += mark(i + 1, j);
+			}
+			if (j < mW - 1) {
+				count += mark(i, j + 1);
+			}
+			index = mNext[index];
+		} while (index != root);
+
+		return count;
+	}
+	private int mark(int i, int j) {
+		final int index = i * mW + j;
+
+		if (isFilled(mBoard.get(i, j)) || mStamp[index] == mStampId) {
+			return 0;
+		}
+
+		mStamp[index] = mStampId;
+		return 1;
+	}
+
+	/**
+	 * Utilities
+	 */
+	private static boolean isBlack(int value) {
+		return value == Nurikabe.B;
+	}
+	private static boolean isNumber(int value) {
+		return value >= 1 && value != Nurikabe.B;
+	}
+	private static boolean isFilled(int value) {
+		return value == Nurikabe.W || isBlack(value) || isNumber(value);
+	}
+}
@@ -0,0 +1,190 @@
+package com.tondol.nurikabe;
+
+public class RuleProfiler extends SearchAdapter {
+	private static final int BUCKETS = 40;
+
+	private long[] mFillCalls = new long[FILLS.length];
+	private long[] mFillNanos = new long[FILLS.length];
+	private long[] mFillCells = new long[FILLS.length];
+	private long[] mFillContradictions = new long[FILLS.length];
+	private long[][] mFillTimes = new long[FILLS.length][BUCKETS];
+	private long[][] mFillSizes = new long[FILLS.length][BUCKETS];
+	private long[] mCheckCalls = new long[CHECKS.length];
+	private long[] mCheckNanos = new long[CHECKS.length];
+	private long[] mCheckFailures = new long[CHECKS.length];
+	private long[][] mCheckTimes = new long[CHECKS.length][BUCKETS];
+	private int mBlame = -1;
+
+	public long getFillCount(int rule) {
+		return mFillCalls[rule];
+	}
+	public long getFillNanos(int rule) {
+		return mFillNanos[rule];
+	}
+	public long getFilledCellCount(int rule) {
+		return mFillCells[rule];
+	}
+	public long getFillContradictionCount(int rule) {
+		return mFillContradictions[rule];
+	}
+	public long getCheckCount(int check) {
+		return mCheckCalls[check];
+	}
+	public long getCheckNanos(int check) {
+		return mCheckNanos[check];
+	}
+	public long getCheckFailureCount(int check) {
+		return mCheckFailures[check];
+	}
+	public void reset() {
+		mFillCalls = new long[FILLS.length];
+		mFillNanos = new long[FILLS.length];
+		mFillCells = new long[FILLS.length];
+		mFillContradictions = new long[FILLS.length];
+		mFillTimes = new long[FILLS.length][BUCKETS];
+		mFillSizes = new long[FILLS.length][BUCKETS];
+		mCheckCalls = new long[CHECKS.length];
+		mCheckNanos = new long[CHECKS.length];
+		mCheckFailures = new long[CHECKS.length];
+		mCheckTimes = new long[CHECKS.length][BUCKETS];
+		mBlame = -1;
+	}
+
+	private static int bucket(long value) {
+		// 0 は 0 番、それ以外は [2^(k-1), 2^k) を k 番に数える
+		if (value <= 0) {
+			return 0;
+		}
+		return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+	}
+
+	/**
+	 * SearchListener
+	 */
+	@Override
+	public void onFill(Nurikabe nurikabe, int rule, int cells, long nanos) {
+		mFillCalls[rule]++;
+		mFillNanos[rule] += nanos;
+		mFillCells[rule] += cells;
+		mFillTimes[rule][bucket(nanos)]++;
+		mFillSizes[rule][bucket(cells)]++;
+		if (cells > 0) {
+			mBlame = rule;
+		}
+	}
+	@Override
+	public void onCheck(Nurikabe nurikabe, int check, boolean failed, long nanos) {
+		mCheckCalls[check]++;
+		mCheckNanos[check] += nanos;
+		mCheckTimes[check][bucket(nanos)]++;
+
+		// 矛盾は、その前に最後にマスを埋めた規則のせいとみなす
+		if (failed) {
+			mCheckFailures[check]++;
+			if (mBlame >= 0) {
+				mFillContradictions[mBlame]++;
+			}
+			mBlame = -1;
+		} else if (check == CHECK_SCAN) {
+			mBlame = -1;
+		}
+	}
+
+	/**
+	 * Report
+	 */
+	private static String quote(String value) {
+		return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+	private static String toJson(long[] values) {
+		// 末尾の 0 は省く
+		int length = values.length;
+		while (length > 0 && values[length - 1] == 0) {
+			length--;
+		}
+
+		StringBuilder sb = new StringBuilder("[");
+		for (int k=0;k<length;k++) {
+			sb.append(k > 0 ? "," : "").append(values[k]);
+		}
+		return sb.append("]").toString();
+	}
+	private static String toText(long[] values) {
+		StringBuilder sb = new StringBuilder();
+		for (int k=0;k<values.length;k++) {
+			if (values[k] == 0) {
+				continue;
+			}
+			if (k == 0) {
+				sb.append(String.format(" 0=%d", values[k]));
+			} else {
+				sb.append(String.format(" [%d,%d)=%d", 1L << (k - 1), 1L << k, values[k]));
+			}
+		}
+		return sb.toString();
+	}
+	public String toJson(String name) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\"puzzle\":").append(quote(name)).append(",\"fills\":[");
+		for (int rule=0;rule<FILLS.length;rule++) {
+			sb.append(rule > 0 ? "," : "");
+			sb.append(String.format("{\"rule\":%s,\"invocations\":%d,\"nanos\":%d,\"cells\":%d,\"contradictions\":%d",
+					quote(FILLS[rule]), mFillCalls[rule], mFillNanos[rule], mFillCells[rule], mFillContradictions[rule]));
+			sb.append(",\"nanosHistogram\":").append(toJson(mFillTimes[rule]));
+			sb.append(",\"cellsHistogram\":").append(toJson(mFillSizes[rule])).append("}");
+		}
+		sb.append("],\"checks\":[");
+		for (int check=0;check<CHECKS.length;check++) {
+			sb.append(check > 0 ? "," : "");
+			sb.append(String.format("{\"check\":%s,\"invocations\":%d,\"nanos\":%d,\"contradictions\":%d",
+					quote(CHECKS[check]), mCheckCalls[check], mCheckNanos[check], mCheckFailures[check]));
+			sb.append(",\"nanosHistogram\":").append(toJson(mCheckTimes[check])).append("}");
+		}
+		return sb.append("]}").toString();
+	}
+	public String toCsv(String name) {
+		final String puzzle = name.matches("[^,\"\\r\\n]*") ? name : "\"" + name.replace("\"", "\"\"") + "\"";
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("puzzle,kind,rule,invocations,nanos,cells,contradictions\n");
+		for (int rule=0;rule<FILLS.length;rule++) {
+			sb.append(String.format("%s,fill,%s,%d,%d,%d,%d\n", puzzle, FILLS[rule],
+					mFillCalls[rule], mFillNanos[rule], mFillCells[rule], mFillContradictions[rule]));
+		}
+		for (int check=0;check<CHECKS.length;check++) {
+			sb.append(String.format("%s,check,%s,%d,%d,0,%d\n", puzzle, CHECKS[check],
+					mCheckCalls[check], mCheckNanos[check], mCheckFailures[check]));
+		}
+		return sb.toString().trim();
+	}
+
+	static public String format(RuleProfiler profiler, String format, String name) {
+		if (format.equals("json")) {
+			return profiler.toJson(name);
+		} else if (format.equals("csv")) {
+			return profiler.toCsv(name);
+		}
+		return profiler.toString();
+	}
+
+	/**
+	 * Object
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int rule=0;rule<FILLS.length;rule++) {
+			sb.append(String.format("fill %s: calls=%d, time=%dms, cells=%d, contradictions=%d\n",
+					FILLS[rule], mFillCalls[rule], mFillNanos[rule] / 1000000,
+					mFillCells[rule], mFillContradictions[rule]));
+			sb.append("  nanos:").append(toText(mFillTimes[rule])).append("\n");
+			sb.append("  cells:").append(toText(mFillSizes[rule])).append("\n");
+		}
+		for (int check=0;check<CHECKS.length;check++) {
+			sb.append(String.format("check %s: calls=%d, time=%dms, contradictions=%d\n",
+					CHECKS[check], mCheckCalls[check], mCheckNanos[check] / 1000000, mCheckFailures[check]));
+			sb.append("  nanos:").append(toText(mCheckTimes[check])).append("\n");
+		}
+		return sb.toString().trim();
+	}
+}
@@ -0,0 +1,31 @@
+package com.tondol.nurikabe;
+
+public abstract class SearchAdapter implements SearchListener {
+	@Override
+	public void onNode(Nurikabe nurikabe, int depth) {
+	}
+	@Override
+	public void onBranch(Nurikabe nurikabe, int i, int j, int value, int depth) {
+	}
+	@Override
+	public void onContradiction(Nurikabe nurikabe, int rule) {
+	}
+	@Override
+	public void onPropagate(Nurikabe nurikabe, int cells) {
+	}
+	@Override
+	public void onPhase(Nurikabe nurikabe, int phase, long nanos) {
+	}
+	@Override
+	public void onFound(Nurikabe nurikabe) {
+	}
+	@Override
+	public void onBackjump(Nurikabe nurikabe, int from, int to) {
+	}
+	@Override
+	public void onFill(Nurikabe nurikabe, int rule, int cells, long nanos) {
+	}
+	@Override
+	public void onCheck(Nurikabe nurikabe, int check, boolean failed, long nanos) {
+	}
+}
@@ -0,0 +1,55 @@
+package com.tondol.nurikabe;
+
+public interface SearchListener {
+	public static final int RULE_2X2 = 0;
+	public static final int RULE_CONTINUOUS = 1;
+	public static final int RULE_COMBINATION = 2;
+	public static final int RULE_NOT_WHITE = 3;
+	public static final int RULE_MORE_THAN_NUMBER = 4;
+	public static final int RULE_LESS_THAN_MAX_NUMBER = 5;
+	public static final int RULE_FINAL = 6;
+	public static final int RULE_TABLE = 7;
+	public static final int RULE_ISLANDS = 8;
+	public static final String[] RULES = {
+		"2x2", "continuous", "combination", "notWhite",
+		"moreThanNumber", "lessThanMaxNumber", "final", "table",
+		"islands",
+	};
+
+	public static final int PHASE_VALIDATE = 0;
+	public static final int PHASE_FILL = 1;
+	public static final int PHASE_SELECT = 2;
+	public static final String[] PHASES = {
+		"validate", "fill", "select",
+	};
+
+	public static final int FILL_NEIGHBOR = 0;
+	public static final int FILL_AREA = 1;
+	public static final int FILL_ISLAND = 2;
+	public static final int FILL_EXTENSIBLE = 3;
+	public static final int FILL_ESCAPE = 4;
+	public static final int FILL_UNREACHABLE = 5;
+	public static final int FILL_ARTICULATION = 6;
+	public static final int FILL_CANDIDATES = 7;
+	public static final String[] FILLS = {
+		"neighbor", "area", "island", "extensible",
+		"escape", "unreachable", "articulation", "candidates",
+	};
+
+	public static final int CHECK_2X2 = 0;
+	public static final int CHECK_ISLANDS = 1;
+	public static final int CHECK_SCAN = 2;
+	public static final String[] CHECKS = {
+		"2x2", "islands", "scan",
+	};
+
+	public void onNode(Nurikabe nurikabe, int depth);
+	public void onBranch(Nurikabe nurikabe, int i, int j, int value, int depth);
+	public void onContradiction(Nurikabe nurikabe, int rule);
+	public void onPropagate(Nurikabe nurikabe, int cells);
+	public void onPhase(Nurikabe nurikabe, int phase, long nanos);
+	public void onFound(Nurikabe nurikabe);
+	public void onBackjump(Nurikabe nurikabe, int from, int to);
+	public void onFill(Nurikabe nurikabe, int rule, int cells, long nanos);
+	public void onCheck(Nurikabe nurikabe, int check, boolean failed, long nanos);
+}
@@ -0,0 +1,106 @@
+package com.tondol.nurikabe;
+
+public class SearchMetrics extends SearchAdapter {
+	private long mNodes = 0;
+	private long mPropagations = 0;
+	private long mPropagatedCells = 0;
+	private long[] mContradictions = new long[RULES.length];
+	private long[] mPhaseNanos = new long[PHASES.length];
+	private int mMaxDepth = 0;
+	private long mSolutions = 0;
+	private long mBackjumps = 0;
+	private long mSkippedLevels = 0;
+
+	public long getNodeCount() {
+		return mNodes;
+	}
+	public long getPropagationCount() {
+		return mPropagations;
+	}
+	public long getPropagatedCellCount() {
+		return mPropagatedCells;
+	}
+	public long getContradictionCount(int rule) {
+		return mContradictions[rule];
+	}
+	public long getPhaseNanos(int phase) {
+		return mPhaseNanos[phase];
+	}
+	public int getMaxDepth() {
+		return mMaxDepth;
+	}
+	public long getSolutionCount() {
+		return mSolutions;
+	}
+	public long getBackjumpCount() {
+		return mBackjumps;
+	}
+	public long getSkippedLevelCount() {
+		return mSkippedLevels;
+	}
+	public void reset() {
+		mNodes = 0;
+		mPropagations = 0;
+		mPropagatedCells = 0;
+		mContradictions = new long[RULES.length];
+		mPhaseNanos = new long[PHASES.length];
+		mMaxDepth = 0;
+		mSolutions = 0;
+		mBackjumps = 0;
+		mSkippedLevels = 0;
+	}
+
+	/**
+	 * SearchListener
+	 */
+	@Override
+	public void onNode(Nurikabe nurikabe, int depth) {
+		mNodes++;
+		mMaxDepth = Math.max(mMaxDepth, depth);
+	}
+	@Override
+	public void onContradiction(Nurikabe nurikabe, int rule) {
+		mContradictions[rule]++;
+	}
+	@Override
+	public void onPropagate(Nurikabe nurikabe, int cells) {
+		mPropagations++;
+		mPropagatedCells += cells;
+	}
+	@Override
+	public void onPhase(Nurikabe nurikabe, int phase, long nanos) {
+		mPhaseNanos[phase] += nanos;
+	}
+	@Override
+	public void onFound(Nurikabe nurikabe) {
+		mSolutions++;
+	}
+	@Override
+	public void onBackjump(Nurikabe nurikabe, int from, int to) {
+		mBackjumps++;
+		mSkippedLevels += from - 1 - to;
+	}
+
+	/**
+	 * Object
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("nodes=%d, depth=%d, solutions=%d\n", mNodes, mMaxDepth, mSolutions));
+		sb.append(String.format("propagations=%d, cells=%d\n", mPropagations, mPropagatedCells));
+		sb.append(String.format("backjumps=%d, skipped=%d\n", mBackjumps, mSkippedLevels));
+
+		sb.append("contradictions:");
+		for (int rule=0;rule<RULES.length;rule++) {
+			sb.append(String.format(" %s=%d", RULES[rule], mContradictions[rule]));
+		}
+		sb.append("\n");
+
+		sb.append("time:");
+		for (int phase=0;phase<PHASES.length;phase++) {
+			sb.append(String.format(" %s=%dms", PHASES[phase], mPhaseNanos[phase] / 1000000));
+		}
+		return sb.toString();
+	}
+}
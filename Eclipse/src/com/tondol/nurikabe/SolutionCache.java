@@ -0,0 +1,289 @@
+package com.tondol.nurikabe;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class SolutionCache {
+	private static final int MAGIC = 0x4e4b5331;
+
+	private int mCapacity = 0;
+	private LinkedHashMap<Key, byte[]> mEntries = null;
+	private long mHits = 0;
+	private long mMisses = 0;
+	private long mStores = 0;
+	private long mEvictions = 0;
+
+	public SolutionCache(int capacity) {
+		mCapacity = capacity;
+
+		// 参照した順に並べ、容量を超えたら最も古いものを捨てる
+		mEntries = new LinkedHashMap<Key, byte[]>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest) {
+				if (size() > mCapacity) {
+					mEvictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public synchronized int size() {
+		return mEntries.size();
+	}
+	public synchronized long getHitCount() {
+		return mHits;
+	}
+	public synchronized long getMissCount() {
+		return mMisses;
+	}
+	public synchronized long getStoreCount() {
+		return mStores;
+	}
+	public synchronized long getEvictionCount() {
+		return mEvictions;
+	}
+
+	/**
+	 * Key
+	 */
+	private static class Key {
+		private int[] mValues = null;
+		private int mHash = 0;
+
+		public Key(int[] values) {
+			mValues = values;
+			mHash = Arrays.hashCode(values);
+		}
+
+		@Override
+		public int hashCode() {
+			return mHash;
+		}
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Key && Arrays.equals(mValues, ((Key) o).mValues);
+		}
+	}
+
+	/**
+	 * Symmetry
+	 */
+	private static int[] transform(Matrix board, int t) {
+		final boolean transpose = (t & 4) != 0;
+		final int h = transpose ? board.getW() : board.getH();
+		final int w = transpose ? board.getH() : board.getW();
+		int[] values = new int[2 + w * h];
+
+		// 転置してから上下、左右の順に裏返す
+		values[0] = h;
+		values[1] = w;
+		for (int i=0;i<h;i++) {
+			for (int j=0;j<w;j++) {
+				final int si = (t & 1) != 0 ? h - 1 - i : i;
+				final int sj = (t & 2) != 0 ? w - 1 - j : j;
+				values[2 + i * w + j] = transpose ? board.get(sj, si) : board.get(si, sj);
+			}
+		}
+		return values;
+	}
+	private static int compare(int[] a, int[] b) {
+		for (int k=0;k<a.length;k++) {
+			if (a[k] != b[k]) {
+				return a[k] < b[k] ? -1 : 1;
+			}
+		}
+		return 0;
+	}
+	private static int canonical(Matrix board, int[][] out) {
+		// 8通りの回転と鏡映のうち辞書順で最小のものを代表にする
+		int best = 0;
+		out[0] = transform(board, 0);
+		for (int t=1;t<8;t++) {
+			final int[] values = transform(board, t);
+			if (compare(values, out[0]) < 0) {
+				out[0] = values;
+				best = t;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Cache
+	 */
+	private static boolean isNumber(int value) {
+		return value >= 1 && value != Nurikabe.B;
+	}
+	public Matrix get(Matrix puzzle) {
+		int[][] canonical = new int[1][];
+		final int t = canonical(puzzle, canonical);
+
+		byte[] blacks = null;
+		synchronized (this) {
+			blacks = mEntries.get(new Key(canonical[0]));
+			if (blacks == null) {
+				mMisses++;
+				return null;
+			}
+			mHits++;
+		}
+
+		// 代表の向きの解を問い合わせた盤面の向きに戻す
+		final int h = canonical[0][0];
+		final int w = canonical[0][1];
+		final boolean transpose = (t & 4) != 0;
+		Matrix solution = new Matrix(puzzle.getW(), puzzle.getH());
+		for (int i=0;i<h;i++) {
+			for (int j=0;j<w;j++) {
+				final int index = i * w + j;
+				final int value = canonical[0][2 + index];
+				final int si = (t & 1) != 0 ? h - 1 - i : i;
+				final int sj = (t & 2) != 0 ? w - 1 - j : j;
+				final int cell = isNumber(value) ? value :
+						(blacks[index >> 3] & (1 << (index & 7))) != 0 ? Nurikabe.B : Nurikabe.W;
+				if (transpose) {
+					solution.put(sj, si, cell);
+				} else {
+					solution.put(si, sj, cell);
+				}
+			}
+		}
+		return solution;
+	}
+	public void put(Matrix puzzle, Matrix solution) {
+		int[][] canonical = new int[1][];
+		final int t = canonical(puzzle, canonical);
+		final int[] solved = transform(solution, t);
+
+		// 解は黒かどうかの1ビットずつに詰めて持つ
+		final int count = solved.length - 2;
+		byte[] blacks = new byte[(count + 7) / 8];
+		for (int index=0;index<count;index++) {
+			if (solved[2 + index] == Nurikabe.B) {
+				blacks[index >> 3] |= 1 << (index & 7);
+			}
+		}
+
+		synchronized (this) {
+			mEntries.put(new Key(canonical[0]), blacks);
+			mStores++;
+		}
+	}
+
+	/**
+	 * Solver
+	 */
+	public interface Solver {
+		// 渡した問題の盤面をその場で解く
+		public SolveResult solve();
+	}
+	public SolveResult solve(Matrix puzzle, Solver solver) {
+		final long start = System.nanoTime();
+
+		// 回転や鏡映を含めて解いたことのある問題なら解かずに返す
+		Matrix cached = get(puzzle);
+		if (cached != null) {
+			return SolveResult.cached(cached, System.nanoTime() - start);
+		}
+
+		// 解くと問題の盤面が書き換わるので、覚えるための写しを先に取る
+		final Matrix key = puzzle.clone();
+		SolveResult result = solver.solve();
+		if (result.isSolved()) {
+			put(key, result.getBoard());
+		}
+		return result;
+	}
+
+	/**
+	 * File
+	 */
+	public synchronized void save(File file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+
+		// 古い順に書き、読み直したときも同じ順で古いものから捨てられるようにする
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(mEntries.size());
+			for (Map.Entry<Key, byte[]> entry : mEntries.entrySet()) {
+				final int[] values = entry.getKey().mValues;
+				int cells = 0;
+				for (int k=2;k<values.length;k++) {
+					if (values[k] != Nurikabe.E) {
+						cells++;
+					}
+				}
+
+				// 盤面は空でないマスの位置と値だけを書く
+				out.writeInt(values[0]);
+				out.writeInt(values[1]);
+				out.writeInt(cells);
+				for (int k=2;k<values.length;k++) {
+					if (values[k] != Nurikabe.E) {
+						out.writeInt(k - 2);
+						out.writeInt(values[k]);
+					}
+				}
+				out.write(entry.getValue());
+			}
+		} finally {
+			out.close();
+		}
+	}
+	public synchronized void load(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("not a solution cache: " + file);
+			}
+			final int entries = in.readInt();
+			for (int e=0;e<entries;e++) {
+				final int h = in.readInt();
+				final int w = in.readInt();
+				final int cells = in.readInt();
+				if (h <= 0 || w <= 0 || (long) w * h > PuzzleReader.MAX_CELLS || cells < 0 || cells > w * h) {
+					throw new IOException("broken solution cache: " + file);
+				}
+
+				int[] values = new int[2 + w * h];
+				values[0] = h;
+				values[1] = w;
+				for (int c=0;c<cells;c++) {
+					final int index = in.readInt();
+					if (index < 0 || index >= w * h) {
+						throw new IOException("broken solution cache: " + file);
+					}
+					values[2 + index] = in.readInt();
+				}
+				byte[] blacks = new byte[(w * h + 7) / 8];
+				in.readFully(blacks);
+				mEntries.put(new Key(values), blacks);
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Object
+	 */
+	@Override
+	public synchronized String toString() {
+		return String.format("cache: entries=%d/%d, hits=%d, misses=%d, stores=%d, evictions=%d",
+				mEntries.size(), mCapacity, mHits, mMisses, mStores, mEvictions);
+	}
+}
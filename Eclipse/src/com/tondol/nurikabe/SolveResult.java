@@ -0,0 +1,74 @@
+package com.tondol.nurikabe;
+
+public class SolveResult {
+	public static final int SOLVED = 0;
+	public static final int UNSAT = 1;
+	public static final int TIMEOUT = 2;
+	public static final int NODE_LIMIT = 3;
+	public static final int INTERRUPTED = 4;
+	public static final String[] STATUSES = {
+		"solved", "unsat", "timeout", "nodeLimit", "interrupted",
+	};
+
+	private int mStatus = SOLVED;
+	private Matrix mBoard = null;
+	private long mNodes = 0;
+	private int mMaxDepth = 0;
+	private int mFilled = 0;
+	private long mNanos = 0;
+	private boolean mCached = false;
+
+	public SolveResult(int status, Matrix board, long nodes, int maxDepth, int filled, long nanos) {
+		mStatus = status;
+		mBoard = board;
+		mNodes = nodes;
+		mMaxDepth = maxDepth;
+		mFilled = filled;
+		mNanos = nanos;
+	}
+	static public SolveResult cached(Matrix board, long nanos) {
+		// 覚えていた解は探索せずに返すので、ノードも深さも 0
+		SolveResult result = new SolveResult(SOLVED, board, 0, 0, board.getW() * board.getH(), nanos);
+		result.mCached = true;
+		return result;
+	}
+
+	public int getStatus() {
+		return mStatus;
+	}
+	public boolean isSolved() {
+		return mStatus == SOLVED;
+	}
+	public boolean isStopped() {
+		// 解なしと分かる前に打ち切った
+		return mStatus != SOLVED && mStatus != UNSAT;
+	}
+	public Matrix getBoard() {
+		return mBoard;
+	}
+	public long getNodeCount() {
+		return mNodes;
+	}
+	public int getMaxDepth() {
+		return mMaxDepth;
+	}
+	public int getFilledCount() {
+		return mFilled;
+	}
+	public long getNanos() {
+		return mNanos;
+	}
+	public boolean isCached() {
+		return mCached;
+	}
+
+	/**
+	 * Object
+	 */
+	@Override
+	public String toString() {
+		return String.format("status=%s, nodes=%d, depth=%d, filled=%d/%d, time=%dms%s",
+				STATUSES[mStatus], mNodes, mMaxDepth, mFilled,
+				mBoard.getW() * mBoard.getH(), mNanos / 1000000, mCached ? ", cached" : "");
+	}
+}
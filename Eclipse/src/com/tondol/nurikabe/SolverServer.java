@@ -0,0 +1,225 @@
+package com.tondol.nurikabe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class SolverServer {
+	private static final int SAMPLES = 4096;
+
+	private int mPort = 0;
+	private int mThreads = 0;
+	private int mCapacity = 0;
+	private long mTimeout = 0;
+	private long mBudget = 0;
+	private Strategy mStrategy = Strategies.TOP_LEFT;
+	private HttpServer mServer = null;
+	private ExecutorService mExecutor = null;
+	private Semaphore mSlots = null;
+	private Latencies mLatencies = new Latencies();
+	private SolutionCache mCache = null;
+
+	public SolverServer(int port, int threads) {
+		this(port, threads, threads * 2);
+	}
+	public SolverServer(int port, int threads, int capacity) {
+		mPort = port;
+		mThreads = threads;
+		mCapacity = capacity;
+	}
+
+	public void setStrategy(Strategy strategy) {
+		mStrategy = strategy;
+	}
+	public void setLimits(long timeout, long budget) {
+		mTimeout = timeout;
+		mBudget = budget;
+	}
+	public void setCache(SolutionCache cache) {
+		mCache = cache;
+	}
+	public int getPort() {
+		return mServer != null ? mServer.getAddress().getPort() : mPort;
+	}
+
+	/**
+	 * Latencies
+	 */
+	private static class Latencies {
+		private long[] mSamples = new long[SAMPLES];
+		private long mCount = 0;
+		private long mRequests = 0;
+		private long mRejected = 0;
+		private long mErrors = 0;
+		private long[] mStatuses = new long[SolveResult.STATUSES.length];
+
+		public synchronized void add(int status, long nanos) {
+			// 直近の SAMPLES 件だけを輪状に残す
+			mSamples[(int) (mCount++ % SAMPLES)] = nanos;
+			mStatuses[status]++;
+		}
+		public synchronized void request() {
+			mRequests++;
+		}
+		public synchronized void reject() {
+			mRejected++;
+		}
+		public synchronized void error() {
+			mErrors++;
+		}
+		private long percentile(long[] sorted, int percent) {
+			if (sorted.length == 0) {
+				return 0;
+			}
+			return sorted[Math.min(sorted.length - 1, (sorted.length * percent + 99) / 100 - 1)];
+		}
+
+		@Override
+		public synchronized String toString() {
+			long[] sorted = Arrays.copyOf(mSamples, (int) Math.min(mCount, SAMPLES));
+			Arrays.sort(sorted);
+
+			StringBuilder sb = new StringBuilder();
+			sb.append(String.format("requests=%d, rejected=%d, errors=%d\n", mRequests, mRejected, mErrors));
+			for (int status=0;status<mStatuses.length;status++) {
+				sb.append(String.format("%s%s=%d", status > 0 ? ", " : "", SolveResult.STATUSES[status], mStatuses[status]));
+			}
+			sb.append(String.format("\np50=%.3fms, p99=%.3fms, max=%.3fms (last %d)",
+					percentile(sorted, 50) / 1e6, percentile(sorted, 99) / 1e6,
+					(sorted.length > 0 ? sorted[sorted.length - 1] : 0) / 1e6, sorted.length));
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * Handler
+	 */
+	private void respond(HttpExchange exchange, int code, String body) throws IOException {
+		byte[] bytes = body.getBytes("UTF-8");
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(code, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		try {
+			out.write(bytes);
+		} finally {
+			out.close();
+		}
+	}
+	private void solve(HttpExchange exchange) throws IOException {
+		if (!exchange.getRequestMethod().equals("POST")) {
+			respond(exchange, 405, "POST a puzzle\n");
+			return;
+		}
+		final long start = System.nanoTime();
+		mLatencies.request();
+
+		Matrix board = null;
+		InputStream in = exchange.getRequestBody();
+		try {
+			board = Utils.readNurikabe(in);
+		} catch (IOException e) {
+			mLatencies.error();
+			respond(exchange, 400, e.getMessage() + "\n");
+			return;
+		} catch (RuntimeException e) {
+			mLatencies.error();
+			respond(exchange, 400, e.toString() + "\n");
+			return;
+		} finally {
+			in.close();
+		}
+		if (board == null) {
+			mLatencies.error();
+			respond(exchange, 400, "expected #H W\n");
+			return;
+		}
+
+		final Matrix puzzle = board;
+		SolutionCache.Solver solver = new SolutionCache.Solver() {
+			@Override
+			public SolveResult solve() {
+				// 解いている数が上限なら待たせずに断る
+				if (!mSlots.tryAcquire()) {
+					throw new RejectedExecutionException("busy");
+				}
+				try {
+					Nurikabe nurikabe = new Nurikabe(puzzle);
+					nurikabe.setStrategy(mStrategy);
+					return nurikabe.solve(mTimeout, TimeUnit.MILLISECONDS, mBudget);
+				} finally {
+					mSlots.release();
+				}
+			}
+		};
+
+		SolveResult result = null;
+		try {
+			result = mCache != null ? mCache.solve(board, solver) : solver.solve();
+		} catch (RejectedExecutionException e) {
+			mLatencies.reject();
+			exchange.getResponseHeaders().set("Retry-After", "1");
+			respond(exchange, 503, "busy\n");
+			return;
+		} catch (RuntimeException e) {
+			// 解いている途中で落ちても応答は返し、失敗として数える
+			mLatencies.error();
+			respond(exchange, 500, e.toString() + "\n");
+			return;
+		}
+		mLatencies.add(result.getStatus(), System.nanoTime() - start);
+
+		respond(exchange, 200, String.format("%s\n%s\n%s\n",
+				result.isSolved() ? "FOUND:" : result.isStopped() ? "STOPPED:" : "NONE:",
+				new Nurikabe(result.getBoard()).toString(), result.toString()));
+	}
+
+	/**
+	 * Server
+	 */
+	public void start() throws IOException {
+		// 外からは受け付けず、同じマシンからの要求だけを解く
+		mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), mPort), 0);
+		mExecutor = Executors.newFixedThreadPool(mCapacity);
+		mSlots = new Semaphore(mThreads);
+
+		mServer.createContext("/solve", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					solve(exchange);
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		mServer.createContext("/stats", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					respond(exchange, 200, mLatencies.toString() + "\n" +
+							(mCache != null ? mCache.toString() + "\n" : ""));
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		mServer.setExecutor(mExecutor);
+		mServer.start();
+	}
+	public void stop() {
+		mServer.stop(0);
+		mExecutor.shutdownNow();
+	}
+}
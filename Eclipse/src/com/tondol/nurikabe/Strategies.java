@@ -0,0 +1,251 @@
+package com.tondol.nurikabe;
+
+import java.util.Arrays;
+
+public class Strategies {
+	public static final String[] NAMES = {
+		"topleft", "fewest", "frontier", "propagation",
+	};
+
+	/**
+	 * 左上の空白マスから白を先に試す
+	 */
+	public static final Strategy TOP_LEFT = new Strategy() {
+		@Override
+		public int selectCell(Nurikabe nurikabe) {
+			return nurikabe.findEmptyCell();
+		}
+		@Override
+		public int selectValue(Nurikabe nurikabe, int i, int j) {
+			return Nurikabe.W;
+		}
+	};
+	/**
+	 * 届く島が最も少ない空白マスから白を先に試す
+	 */
+	public static final Strategy FEWEST_ISLANDS = new Strategy() {
+		@Override
+		public int selectCell(Nurikabe nurikabe) {
+			return selectFewestIslands(nurikabe);
+		}
+		@Override
+		public int selectValue(Nurikabe nurikabe, int i, int j) {
+			return Nurikabe.W;
+		}
+	};
+	/**
+	 * 未完成の島の縁から白を先に試す
+	 */
+	public static final Strategy FRONTIER = new Strategy() {
+		@Override
+		public int selectCell(Nurikabe nurikabe) {
+			return selectFrontier(nurikabe);
+		}
+		@Override
+		public int selectValue(Nurikabe nurikabe, int i, int j) {
+			return Nurikabe.W;
+		}
+	};
+	/**
+	 * 未完成の島の縁から、多く埋まる方を先に試す
+	 */
+	public static final Strategy PROPAGATION = new Strategy() {
+		@Override
+		public int selectCell(Nurikabe nurikabe) {
+			return selectFrontier(nurikabe);
+		}
+		@Override
+		public int selectValue(Nurikabe nurikabe, int i, int j) {
+			int white = nurikabe.probe(i, j, Nurikabe.W);
+			int black = nurikabe.probe(i, j, Nurikabe.B);
+			return black > white ? Nurikabe.B : Nurikabe.W;
+		}
+	};
+
+	public static Strategy get(String name) {
+		if (name.equals("topleft")) {
+			return TOP_LEFT;
+		} else if (name.equals("fewest")) {
+			return FEWEST_ISLANDS;
+		} else if (name.equals("frontier")) {
+			return FRONTIER;
+		} else if (name.equals("propagation")) {
+			return PROPAGATION;
+		} else {
+			throw new IllegalArgumentException("unknown strategy: " + name);
+		}
+	}
+
+	/**
+	 * Scratch
+	 */
+	static class Scratch {
+		int[] counts = null;
+		int[] stamps = null;
+		int[] distances = null;
+		int[] queue = null;
+		int stamp = 0;
+
+		Scratch(int size) {
+			counts = new int[size];
+			stamps = new int[size];
+			distances = new int[size];
+			queue = new int[size];
+		}
+
+		int nextStamp() {
+			// 一周しそうなら印を消してから数え直す
+			if (stamp == Integer.MAX_VALUE) {
+				stamp = 0;
+				Arrays.fill(stamps, 0);
+			}
+			return ++stamp;
+		}
+	}
+
+	/**
+	 * Select
+	 */
+	private static int selectFewestIslands(Nurikabe nurikabe) {
+		final Matrix board = nurikabe.getBoard();
+		final int w = board.getW();
+		final int h = board.getH();
+		final Regions regions = nurikabe.regions();
+
+		// 作業用の配列は盤面ごとに使い回し、数は最後の走査で 0 に戻す
+		final Scratch scratch = nurikabe.scratch();
+		final int[] counts = scratch.counts;
+		final int[] stamps = scratch.stamps;
+		final int[] distances = scratch.distances;
+		final int[] queue = scratch.queue;
+
+		// 残りの大きさで届く範囲の空白マスに島の数を数える
+		for (int root=0;root<w*h;root++) {
+			if (!regions.isRoot(root) ||
+					!regions.isWhite(root) ||
+					regions.clues(root) != 1 ||
+					regions.clue(root) <= regions.size(root)) {
+				continue;
+			}
+
+			final int stamp = scratch.nextStamp();
+			final int budget = regions.clue(root) - regions.size(root);
+			int head = 0;
+			int tail = 0;
+
+			int index = root;
+			do {
+				stamps[index] = stamp;
+				distances[index] = 0;
+				queue[tail++] = index;
+				index = regions.next(index);
+			} while (index != root);
+
+			while (head < tail) {
+				final int current = queue[head++];
+				final int i = current / w;
+				final int j = current % w;
+
+				if (distances[current] == budget) {
+					continue;
+				}
+				if (i > 0) {
+					tail = visit(board, current - w, current, stamp, stamps, distances, counts, queue, tail);
+				}
+				if (j > 0) {
+					tail = visit(board, current - 1, current, stamp, stamps, distances, counts, queue, tail);
+				}
+				if (i < h - 1) {
+					tail = visit(board, current + w, current, stamp, stamps, distances, counts, queue, tail);
+				}
+				if (j < w - 1) {
+					tail = visit(board, current + 1, current, stamp, stamps, distances, counts, queue, tail);
+				}
+			}
+		}
+
+		int best = -1;
+		int best_count = 0;
+		for (int index=0;index<w*h;index++) {
+			if (counts[index] > 0 && (best < 0 || counts[index] < best_count)) {
+				best = index;
+				best_count = counts[index];
+			}
+			counts[index] = 0;
+		}
+
+		return best >= 0 ? best : nurikabe.findEmptyCell();
+	}
+	private static int visit(Matrix board, int index, int from, int stamp,
+			int[] stamps, int[] distances, int[] counts, int[] queue, int tail) {
+		final int w = board.getW();
+
+		if (stamps[index] == stamp || board.get(index / w, index % w) != Nurikabe.E) {
+			return tail;
+		}
+
+		stamps[index] = stamp;
+		distances[index] = distances[from] + 1;
+		counts[index]++;
+		queue[tail++] = index;
+		return tail;
+	}
+	private static int selectFrontier(Nurikabe nurikabe) {
+		final Matrix board = nurikabe.getBoard();
+		final int w = board.getW();
+		final int h = board.getH();
+		final Regions regions = nurikabe.regions();
+
+		int best = -1;
+		int best_liberties = 0;
+		int best_budget = 0;
+
+		// 伸ばせる先が最も少ない未完成の島を選ぶ
+		for (int root=0;root<w*h;root++) {
+			if (!regions.isRoot(root) ||
+					!regions.isWhite(root) ||
+					regions.clues(root) != 1 ||
+					regions.clue(root) <= regions.size(root)) {
+				continue;
+			}
+
+			final int liberties = regions.liberties(root);
+			final int budget = regions.clue(root) - regions.size(root);
+			if (liberties == 0) {
+				continue;
+			}
+			if (best < 0 || liberties < best_liberties ||
+					(liberties == best_liberties && budget < best_budget)) {
+				best = root;
+				best_liberties = liberties;
+				best_budget = budget;
+			}
+		}
+
+		if (best < 0) {
+			return nurikabe.findEmptyCell();
+		}
+
+		int index = best;
+		do {
+			final int i = index / w;
+			final int j = index % w;
+
+			if (i > 0 && board.get(i - 1, j) == Nurikabe.E) {
+				return index - w;
+			}
+			if (j > 0 && board.get(i, j - 1) == Nurikabe.E) {
+				return index - 1;
+			}
+			if (i < h - 1 && board.get(i + 1, j) == Nurikabe.E) {
+				return index + w;
+			}
+			if (j < w - 1 && board.get(i, j + 1) == Nurikabe.E) {
+				return index + 1;
+			}
+			index = regions.next(index);
+		} while (index != best);
+
+		return nurikabe.findEmptyCell();
+	}
+}
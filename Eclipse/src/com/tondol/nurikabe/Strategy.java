@@ -0,0 +1,6 @@
+package com.tondol.nurikabe;
+
+public interface Strategy {
+	public int selectCell(Nurikabe nurikabe);
+	public int selectValue(Nurikabe nurikabe, int i, int j);
+}
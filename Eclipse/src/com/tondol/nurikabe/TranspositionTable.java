@@ -0,0 +1,94 @@
+package com.tondol.nurikabe;
+
+import java.util.Arrays;
+
+public class TranspositionTable {
+	private long[] mKeys = null;
+	private int[] mDepths = null;
+	private int mMask = 0;
+	private long mHits = 0;
+	private long mMisses = 0;
+	private long mStores = 0;
+	private long mEvictions = 0;
+
+	public TranspositionTable(int capacity) {
+		// 2つずつの組にするので2のべき乗に切り上げる
+		int buckets = 1;
+		while (buckets * 2 < capacity) {
+			buckets *= 2;
+		}
+
+		mKeys = new long[buckets * 2];
+		mDepths = new int[buckets * 2];
+		mMask = buckets - 1;
+		Arrays.fill(mDepths, -1);
+	}
+
+	public long getHitCount() {
+		return mHits;
+	}
+	public long getMissCount() {
+		return mMisses;
+	}
+	public long getStoreCount() {
+		return mStores;
+	}
+	public long getEvictionCount() {
+		return mEvictions;
+	}
+	public void clear() {
+		Arrays.fill(mDepths, -1);
+		mHits = 0;
+		mMisses = 0;
+		mStores = 0;
+		mEvictions = 0;
+	}
+
+	/**
+	 * Table
+	 */
+	private int bucket(long key) {
+		return ((int) (key ^ (key >>> 32)) & mMask) * 2;
+	}
+	public boolean contains(long key) {
+		final int slot = bucket(key);
+
+		if ((mDepths[slot] >= 0 && mKeys[slot] == key) ||
+				(mDepths[slot + 1] >= 0 && mKeys[slot + 1] == key)) {
+			mHits++;
+			return true;
+		}
+
+		mMisses++;
+		return false;
+	}
+	public void store(long key, int depth) {
+		final int slot = bucket(key);
+		mStores++;
+
+		// 1つ目は浅い (部分木の大きい) 局面を優先し、2つ目は常に上書きする
+		if (mDepths[slot] < 0 || depth <= mDepths[slot] || mKeys[slot] == key) {
+			put(slot, key, depth);
+		} else {
+			put(slot + 1, key, depth);
+		}
+	}
+	private void put(int slot, long key, int depth) {
+		if (mDepths[slot] >= 0 && mKeys[slot] != key) {
+			mEvictions++;
+		}
+
+		mKeys[slot] = key;
+		mDepths[slot] = depth;
+	}
+
+	/**
+	 * Object
+	 */
+	@Override
+	public String toString() {
+		final long lookups = mHits + mMisses;
+		return String.format("table: hits=%d, misses=%d, rate=%.1f%%, stores=%d, evictions=%d",
+				mHits, mMisses, lookups > 0 ? 100.0 * mHits / lookups : 0.0, mStores, mEvictions);
+	}
+}
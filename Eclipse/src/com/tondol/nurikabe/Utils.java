@@ -3,25 +3,37 @@ package com.tondol.nurikabe;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class Utils {
+	public static final int MAX_CELL_NUMBER = 35;
+	private static final Pattern HEADER = Pattern.compile("(\\d+)\\s+(\\d+)");
+	private static final Pattern GLUED = Pattern.compile("#\\d+[ \\t]+\\d+[ \\t]*$");
+	private static final int MARK_LIMIT = 1 << 16;
+
 	static public int stringToValue(String s) {
-		if (s.equals(" ")) {
-			return Nurikabe.W;
-		} else if (s.matches("\\d")) {
-			return Integer.parseInt(s);
-		} else if (s.equals("#")) {
-			return Nurikabe.B;
-		} else {
-			return 0;
+		if (s.length() == 1) {
+			return PuzzleReader.decode(s.charAt(0));
+		}
+
+		// 2文字以上は10進の数だけを受け付け、あふれる数も弾く
+		if (s.isEmpty()) {
+			return Nurikabe.E;
 		}
+		if (!s.matches("\\d+")) {
+			throw new NumberFormatException(String.format("invalid cell '%s'", s));
+		}
+		return Integer.parseInt(s);
 	}
 	static public String valueToString(int value) {
+		// 36以上の数字はカンマ区切りの行でしか表せない
 		if (value >= 0 && value <= 9) {
 			return String.valueOf(value);
+		} else if (value >= 10 && value <= MAX_CELL_NUMBER) {
+			return String.valueOf(Character.forDigit(value, 36));
+		} else if (value > MAX_CELL_NUMBER && value != Nurikabe.B) {
+			return String.valueOf(value);
 		} else if (value == Nurikabe.W) {
 			return " ";
 		} else if (value == Nurikabe.B) {
@@ -31,25 +43,96 @@ public class Utils {
 		}
 	}
 
+	private static int readCell(String token, int row, int cells) throws IOException {
+		if (token.length() == 1) {
+			return PuzzleReader.decode(token.charAt(0));
+		}
+
+		// 盤面のマスの数より大きな数字は満たせないので、あふれる前に弾く
+		int number = 0;
+		for (int k=0;k<token.length();k++) {
+			final char c = token.charAt(k);
+			if (c < '0' || c > '9') {
+				throw new IOException(String.format("row %d: invalid cell '%s'", row + 1, token));
+			}
+			number = number * 10 + (c - '0');
+			if (number > cells) {
+				throw new IOException(String.format("row %d: cell '%s' exceeds %d cells", row + 1, token, cells));
+			}
+		}
+		return number;
+	}
 	static public Matrix readNurikabe(InputStream in) throws IOException {
-		BufferedReader br = new BufferedReader(new InputStreamReader(in));
+		return new PuzzleReader(in).read();
+	}
+	private static int findHeader(String row, int m) {
+		Matcher matcher = GLUED.matcher(row);
+		if (!matcher.find()) {
+			return -1;
+		}
+
+		// カンマ区切りならマスの途中、そうでなければ m マスより後ろにあるときだけ見出しとみなす
+		final int index = matcher.start();
+		if (row.indexOf(',') >= 0 ? index == 0 || row.charAt(index - 1) == ',' : index < m) {
+			return -1;
+		}
+		return index;
+	}
+	static public Matrix readNurikabe(BufferedReader br) throws IOException {
 		String line = br.readLine();
 
-		Pattern pattern = Pattern.compile("(\\d+)\\s+(\\d+)");
-		Matcher matcher = pattern.matcher(line);
-		if (!matcher.find()) {
+		// 連結された問題の間の空行は読み飛ばす
+		while (line != null && line.trim().isEmpty()) {
+			line = br.readLine();
+		}
+		if (line == null) {
 			return null;
 		}
 
-		int n = Integer.parseInt(matcher.group(1));
-		int m = Integer.parseInt(matcher.group(2));
+		// null を返すのは入力の終わりだけにする
+		Matcher matcher = HEADER.matcher(line);
+		if (!matcher.find()) {
+			throw new IOException(String.format("expected #H W, found '%s'", line.trim()));
+		}
+
+		// 桁の多すぎる数も大きすぎる盤面として弾く
+		final long h = matcher.group(1).length() > 9 ? Long.MAX_VALUE : Long.parseLong(matcher.group(1));
+		final long w = matcher.group(2).length() > 9 ? Long.MAX_VALUE : Long.parseLong(matcher.group(2));
+		if (h <= 0 || w <= 0 || h > PuzzleReader.MAX_CELLS || w > PuzzleReader.MAX_CELLS ||
+				h * w > PuzzleReader.MAX_CELLS) {
+			throw new IOException(String.format("invalid size '%s', at most %d cells", line.trim(), PuzzleReader.MAX_CELLS));
+		}
+		final int n = (int) h;
+		final int m = (int) w;
 		Matrix matrix = new Matrix(m, n);
 
 		for (int i=0;i<n;i++) {
+			// 末尾に改行のないファイルを連結すると、次の問題の見出しが最終行に付くので読み戻せるようにしておく
+			if (i == n - 1) {
+				br.mark(MARK_LIMIT);
+			}
 			String row = br.readLine();
+			final int glued = i == n - 1 && row != null ? findHeader(row, m) : -1;
+			if (glued >= 0 && row.length() < MARK_LIMIT) {
+				br.reset();
+				br.skip(glued);
+				row = row.substring(0, glued);
+			}
+			if (row != null && row.indexOf(',') >= 0) {
+				String[] tokens = row.split(",", -1);
+				if (tokens.length < m) {
+					throw new IOException(String.format("row %d: expected %d cells", i + 1, m));
+				}
+				for (int j=0;j<m;j++) {
+					matrix.put(i, j, readCell(tokens[j], i, n * m));
+				}
+				continue;
+			}
+			if (row == null || row.length() < m) {
+				throw new IOException(String.format("row %d: expected %d cells", i + 1, m));
+			}
 			for (int j=0;j<m;j++) {
-				String s = row.substring(j, j + 1);
-				matrix.put(i, j, stringToValue(s));
+				matrix.put(i, j, PuzzleReader.decode(row.charAt(j)));
 			}
 		}
 
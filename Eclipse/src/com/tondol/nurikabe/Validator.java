@@ -0,0 +1,148 @@
+package com.tondol.nurikabe;
+
+public class Validator {
+	private int mW = 0;
+	private int mH = 0;
+	private int[] mArea = null;
+	private int[] mAreaSize = null;
+	private int[] mAreaWhite = null;
+	private int[] mAreaClue = null;
+	private int[] mBlack = null;
+	private int[] mBlackSize = null;
+
+	public Validator(int w, int h) {
+		mW = w;
+		mH = h;
+		mArea = new int[w * h];
+		mAreaSize = new int[w * h];
+		mAreaWhite = new int[w * h];
+		mAreaClue = new int[w * h];
+		mBlack = new int[w * h];
+		mBlackSize = new int[w * h];
+	}
+
+	/**
+	 * Union-Find
+	 */
+	private static int find(int[] parent, int index) {
+		while (parent[index] != index) {
+			parent[index] = parent[parent[index]];
+			index = parent[index];
+		}
+		return index;
+	}
+	private void unionArea(int index1, int index2) {
+		final int root1 = find(mArea, index1);
+		final int root2 = find(mArea, index2);
+		if (root1 == root2) {
+			return;
+		}
+
+		// 添字の小さい方を根にして集計をまとめる
+		final int root = Math.min(root1, root2);
+		final int child = Math.max(root1, root2);
+		mArea[child] = root;
+		mAreaSize[root] += mAreaSize[child];
+		mAreaWhite[root] += mAreaWhite[child];
+		mAreaClue[root] = Math.max(mAreaClue[root], mAreaClue[child]);
+	}
+	private void unionBlack(int index1, int index2) {
+		final int root1 = find(mBlack, index1);
+		final int root2 = find(mBlack, index2);
+		if (root1 == root2) {
+			return;
+		}
+
+		final int root = Math.min(root1, root2);
+		final int child = Math.max(root1, root2);
+		mBlack[child] = root;
+		mBlackSize[root] += mBlackSize[child];
+	}
+
+	/**
+	 * Check
+	 */
+	public int check(Matrix board, Regions regions, int maxNumber) {
+		final int w = mW;
+		final int size = mW * mH;
+
+		if (maxNumber == 0) {
+			return SearchListener.RULE_LESS_THAN_MAX_NUMBER;
+		}
+
+		// 黒以外のエリアと白以外のエリアを1回の走査でまとめて集計する
+		for (int i=0;i<mH;i++) {
+			for (int j=0;j<w;j++) {
+				final int index = i * w + j;
+				final int value = board.get(i, j);
+
+				if (value != Nurikabe.B) {
+					mArea[index] = index;
+					mAreaSize[index] = 1;
+					mAreaWhite[index] = value == Nurikabe.W ? 1 : 0;
+					mAreaClue[index] = isNumber(value) ? value : 0;
+					if (i > 0 && board.get(i - 1, j) != Nurikabe.B) {
+						unionArea(index - w, index);
+					}
+					if (j > 0 && board.get(i, j - 1) != Nurikabe.B) {
+						unionArea(index - 1, index);
+					}
+				}
+				if (isNotWhite(value)) {
+					mBlack[index] = index;
+					mBlackSize[index] = value == Nurikabe.B ? 1 : 0;
+					if (i > 0 && isNotWhite(board.get(i - 1, j))) {
+						unionBlack(index - w, index);
+					}
+					if (j > 0 && isNotWhite(board.get(i, j - 1))) {
+						unionBlack(index - 1, index);
+					}
+				}
+			}
+		}
+
+		int blacks = 0;
+		for (int index=0;index<size;index++) {
+			final int value = board.get(index / w, index % w);
+
+			if (value != Nurikabe.B && mArea[index] == index) {
+				// 白マスだけのエリアは数字に届かない
+				if (mAreaWhite[index] == mAreaSize[index]) {
+					return SearchListener.RULE_NOT_WHITE;
+				}
+				// エリアに収まらない数字がある
+				if (mAreaClue[index] > mAreaSize[index]) {
+					return SearchListener.RULE_MORE_THAN_NUMBER;
+				}
+			}
+			if (isNotWhite(value) && mBlack[index] == index && mBlackSize[index] > 0) {
+				// 黒のあるエリアは1つだけのはず
+				if (++blacks > 1) {
+					return SearchListener.RULE_CONTINUOUS;
+				}
+			}
+			if (regions.isRoot(index) && regions.isWhite(index)) {
+				if (regions.clues(index) > 1 ||
+						(regions.clues(index) == 1 && regions.clue(index) < regions.size(index))) {
+					return SearchListener.RULE_COMBINATION;
+				}
+				// 数字のない白マスの塊は最大の数字より小さいはず
+				if (regions.size(index) - regions.clues(index) >= maxNumber) {
+					return SearchListener.RULE_LESS_THAN_MAX_NUMBER;
+				}
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Utilities
+	 */
+	private static boolean isNumber(int value) {
+		return value >= 1 && value != Nurikabe.B;
+	}
+	private static boolean isNotWhite(int value) {
+		return value == Nurikabe.B || value == Nurikabe.E;
+	}
+}
@@ -0,0 +1,57 @@
+package com.tondol.nurikabe;
+
+import java.util.Random;
+
+public class Zobrist {
+	private long[] mWhite = null;
+	private long[] mBlack = null;
+	private long mPuzzle = 0;
+
+	public Zobrist(Matrix board) {
+		final int w = board.getW();
+		final int size = w * board.getH();
+
+		// 大きさと数字の配置から種を作り、別の問題と表を共有しても同じ鍵にならないようにする
+		long seed = w * 31L + board.getH();
+		for (int index=0;index<size;index++) {
+			final int value = board.get(index / w, index % w);
+			if (value >= 1 && value != Nurikabe.B) {
+				seed = (seed * 31 + index) * 31 + value;
+			}
+		}
+		Random random = new Random(seed);
+
+		// 何も塗っていない盤面も問題ごとに違う鍵にする
+		mPuzzle = random.nextLong();
+
+		mWhite = new long[size];
+		mBlack = new long[size];
+		for (int index=0;index<size;index++) {
+			mWhite[index] = random.nextLong();
+			mBlack[index] = random.nextLong();
+		}
+	}
+
+	public long key(int index, int value) {
+		if (value == Nurikabe.W) {
+			return mWhite[index];
+		} else if (value == Nurikabe.B) {
+			return mBlack[index];
+		} else {
+			return 0;
+		}
+	}
+	public long hash(Matrix board) {
+		final int w = board.getW();
+		final int h = board.getH();
+		long hash = mPuzzle;
+
+		for (int i=0;i<h;i++) {
+			for (int j=0;j<w;j++) {
+				hash ^= key(i * w + j, board.get(i, j));
+			}
+		}
+
+		return hash;
+	}
+}
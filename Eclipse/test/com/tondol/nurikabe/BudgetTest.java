@@ -0,0 +1,90 @@
+package com.tondol.nurikabe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class BudgetTest {
+	@Test
+	public void unlimited() throws IOException {
+		SolveResult result = new Nurikabe(Puzzles.read("sample1")).solve(0, TimeUnit.MILLISECONDS, 0);
+
+		assertEquals(SolveResult.SOLVED, result.getStatus());
+		assertEquals(Puzzles.read("sample1_answer").toString(), result.getBoard().toString());
+	}
+	@Test
+	public void nodeLimit() throws IOException {
+		// sample3 はまだ解けないので必ず打ち切られる
+		SolveResult result = new Nurikabe(Puzzles.read("sample3")).solve(0, TimeUnit.MILLISECONDS, 100);
+
+		assertEquals(SolveResult.NODE_LIMIT, result.getStatus());
+		assertTrue(result.isStopped());
+		assertFalse(result.isSolved());
+		assertEquals(100, result.getNodeCount());
+	}
+	@Test
+	public void timeout() throws IOException {
+		SolveResult result = new Nurikabe(Puzzles.read("sample3")).solve(200, TimeUnit.MILLISECONDS, 0);
+
+		assertEquals(SolveResult.TIMEOUT, result.getStatus());
+		assertTrue(result.getNanos() >= TimeUnit.MILLISECONDS.toNanos(200));
+		assertTrue(result.getNanos() < TimeUnit.SECONDS.toNanos(10));
+	}
+	@Test
+	public void interrupted() throws Exception {
+		final Nurikabe nurikabe = new Nurikabe(Puzzles.read("sample3"));
+		final SolveResult[] result = new SolveResult[1];
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				result[0] = nurikabe.solve(0, TimeUnit.MILLISECONDS, 0);
+			}
+		});
+
+		// 別のスレッドから割り込んで止める
+		thread.start();
+		Thread.sleep(200);
+		thread.interrupt();
+		thread.join(TimeUnit.SECONDS.toMillis(10));
+
+		assertFalse(thread.isAlive());
+		assertEquals(SolveResult.INTERRUPTED, result[0].getStatus());
+	}
+	@Test
+	public void progress() throws IOException {
+		final long[] calls = new long[1];
+		Nurikabe nurikabe = new Nurikabe(Puzzles.read("sample3"));
+		nurikabe.setProgressListener(new ProgressListener() {
+			@Override
+			public void onProgress(Nurikabe nurikabe, long nodes, int depth, int filled) {
+				assertEquals(calls[0] * 10, nodes);
+				calls[0]++;
+			}
+		}, 10);
+
+		SolveResult result = nurikabe.solve(0, TimeUnit.MILLISECONDS, 100);
+		assertEquals(SolveResult.NODE_LIMIT, result.getStatus());
+		// 探索を始める前の 0 ノードと、打ち切る 100 ノードを含めて 10 ノードごと
+		assertEquals(11, calls[0]);
+	}
+	@Test(expected = IllegalArgumentException.class)
+	public void zeroInterval() throws IOException {
+		new Nurikabe(Puzzles.read("sample1")).setProgressListener(new ProgressListener() {
+			@Override
+			public void onProgress(Nurikabe nurikabe, long nodes, int depth, int filled) {
+			}
+		}, 0);
+	}
+	@Test
+	public void removeListener() throws IOException {
+		// 外すときは間隔が 0 でもよい
+		Nurikabe nurikabe = new Nurikabe(Puzzles.read("sample1"));
+		nurikabe.setProgressListener(null, 0);
+		assertTrue(nurikabe.solve(0, TimeUnit.MILLISECONDS, 0).isSolved());
+	}
+}
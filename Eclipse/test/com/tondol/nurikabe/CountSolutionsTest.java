@@ -0,0 +1,36 @@
+package com.tondol.nurikabe;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CountSolutionsTest {
+	private static final int PUZZLES = 300;
+	private static final int CELLS = 16;
+
+	@Test
+	public void limit() {
+		Random random = new Random(4);
+		for (int k=0;k<PUZZLES;k++) {
+			Matrix puzzle = Puzzles.random(random, CELLS);
+			final int count = Puzzles.count(puzzle);
+
+			// 上限に達したところで打ち切る
+			for (int limit=1;limit<=3;limit++) {
+				assertEquals(puzzle.toString(), Math.min(count, limit),
+						new Nurikabe(puzzle.clone()).countSolutions(limit));
+				assertEquals(puzzle.toString(), Math.min(count, limit),
+						new Nurikabe(puzzle.clone()).countSolutions(limit, 4));
+			}
+		}
+	}
+	@Test
+	public void unique() {
+		// 解がひとつの問題は上限を上げても 1
+		Matrix puzzle = Puzzles.parse("00000", "00000", "00000", "08030");
+		assertEquals(1, new Nurikabe(puzzle.clone()).countSolutions(2));
+		assertEquals(1, new Nurikabe(puzzle.clone()).countSolutions(2, 4));
+	}
+}
@@ -0,0 +1,66 @@
+package com.tondol.nurikabe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DecomposeTest {
+	private static void assertClues(Matrix puzzle, Matrix board) {
+		for (int i=0;i<puzzle.getH();i++) {
+			for (int j=0;j<puzzle.getW();j++) {
+				if (Puzzles.isNumber(puzzle.get(i, j))) {
+					assertEquals(puzzle.get(i, j), board.get(i, j));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void blanked() throws IOException, InterruptedException {
+		// 答えの盤面から離れた2つの長方形を消すと、互いに影響しない塊に分かれやすい
+		Random random = new Random(11);
+		int split = 0;
+		for (String name : new String[] {"sample5_answer", "sample6_answer"}) {
+			final Matrix answer = Puzzles.read(name);
+			final int w = answer.getW();
+			final int h = answer.getH();
+			for (int k=0;k<20;k++) {
+				Matrix puzzle = answer.clone();
+				for (int r=0;r<2;r++) {
+					final int top = random.nextInt(h - 2);
+					final int left = r == 0 ? random.nextInt(w / 2 - 2) : w / 2 + random.nextInt(w / 2 - 2);
+					for (int i=top;i<top+3;i++) {
+						for (int j=left;j<left+3;j++) {
+							if (!Puzzles.isNumber(puzzle.get(i, j))) {
+								puzzle.put(i, j, Nurikabe.E);
+							}
+						}
+					}
+				}
+
+				// 元の答えが解のひとつなので必ず解ける
+				Nurikabe nurikabe = new Nurikabe(puzzle.clone());
+				assertTrue(puzzle.toString(), nurikabe.solveDecomposed(4));
+				assertTrue(puzzle.toString(), nurikabe.validate());
+				assertClues(puzzle, nurikabe.getBoard());
+				if (nurikabe.getComponentCount() > 1) {
+					split++;
+				}
+			}
+		}
+		assertTrue(String.valueOf(split), split > 0);
+	}
+	@Test
+	public void samples() throws IOException, InterruptedException {
+		for (String name : new String[] {"sample1", "sample2", "sample4", "sample5", "sample6"}) {
+			Nurikabe nurikabe = new Nurikabe(Puzzles.read(name));
+
+			assertTrue(name, nurikabe.solveDecomposed(4));
+			assertEquals(name, Puzzles.read(name + "_answer").toString(), nurikabe.getBoard().toString());
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package com.tondol.nurikabe;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class FillTest {
+	/**
+	 * Listener
+	 */
+	private static class FillCounter extends SearchAdapter {
+		private int[] mCells = new int[SearchListener.FILLS.length];
+
+		@Override
+		public void onFill(Nurikabe nurikabe, int rule, int cells, long nanos) {
+			mCells[rule] += cells;
+		}
+
+		public int get(int rule) {
+			return mCells[rule];
+		}
+		public int others(int rule) {
+			int sum = 0;
+			for (int k=0;k<mCells.length;k++) {
+				if (k != rule) {
+					sum += mCells[k];
+				}
+			}
+			return sum;
+		}
+	}
+
+	@Test
+	public void unreachable() {
+		// 中央の 2 は隅まで届かないので、隅の4マスだけが黒になる
+		Nurikabe nurikabe = new Nurikabe(Puzzles.parse(
+				"000",
+				"020",
+				"000"));
+		FillCounter counter = new FillCounter();
+		nurikabe.addListener(counter);
+		nurikabe.fill();
+
+		assertEquals(4, counter.get(SearchListener.FILL_UNREACHABLE));
+		assertEquals(0, counter.others(SearchListener.FILL_UNREACHABLE));
+		assertEquals(Puzzles.parse(
+				"#0#",
+				"020",
+				"#0#").toString(), nurikabe.getBoard().toString());
+	}
+	@Test
+	public void articulation() {
+		// 1 の隣の2つの黒は中央を通らないとつながらない
+		Nurikabe nurikabe = new Nurikabe(Puzzles.parse(
+				"1#0",
+				"#00",
+				"003"));
+		FillCounter counter = new FillCounter();
+		nurikabe.addListener(counter);
+		nurikabe.fill();
+
+		assertEquals(1, counter.get(SearchListener.FILL_ARTICULATION));
+		assertEquals(0, counter.others(SearchListener.FILL_ARTICULATION));
+		assertEquals(Nurikabe.B, nurikabe.getBoard().get(1, 1));
+	}
+	@Test
+	public void escape() {
+		// 左上を黒にすると、右は 3 なので出口は下の1マスだけになる
+		Nurikabe nurikabe = new Nurikabe(Puzzles.parse(
+				"0300",
+				"0000",
+				"0#00"));
+		nurikabe.fill();
+		assertEquals(Nurikabe.E, nurikabe.getBoard().get(1, 0));
+
+		FillCounter counter = new FillCounter();
+		nurikabe.addListener(counter);
+		nurikabe.assume(0, 0, Nurikabe.B);
+		nurikabe.fill();
+
+		assertEquals(1, counter.get(SearchListener.FILL_ESCAPE));
+		assertEquals(0, counter.others(SearchListener.FILL_ESCAPE));
+		assertEquals(Nurikabe.B, nurikabe.getBoard().get(1, 0));
+	}
+}
@@ -0,0 +1,111 @@
+package com.tondol.nurikabe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IslandsTest {
+	private static final int PUZZLES = 300;
+	private static final int CELLS = 16;
+	private static final int LIMIT = 1 << 16;
+
+	private static boolean isConnected(int mask, int w, int h) {
+		// 最下位のマスから4方向にたどって全部に届けばつながっている
+		int reached = mask & -mask;
+		while (true) {
+			int next = reached;
+			for (int index=0;index<w*h;index++) {
+				if ((reached & (1 << index)) == 0) {
+					continue;
+				}
+				if (index >= w) {
+					next |= 1 << (index - w);
+				}
+				if (index + w < w * h) {
+					next |= 1 << (index + w);
+				}
+				if (index % w > 0) {
+					next |= 1 << (index - 1);
+				}
+				if (index % w < w - 1) {
+					next |= 1 << (index + 1);
+				}
+			}
+			next &= mask;
+			if (next == reached) {
+				return reached == mask;
+			}
+			reached = next;
+		}
+	}
+	private static int countPlacements(Matrix board, int clue) {
+		final int w = board.getW();
+		final int h = board.getH();
+		int others = 0;
+		for (int index=0;index<w*h;index++) {
+			if (index != clue && Puzzles.isNumber(board.get(index / w, index % w))) {
+				others |= 1 << index;
+			}
+		}
+
+		// 数字のマスを含み、ほかの数字を含まず接しもしない、数字の大きさのつながったマスの組
+		int count = 0;
+		for (int mask=0;mask<(1 << (w * h));mask++) {
+			if ((mask & (1 << clue)) == 0 || Integer.bitCount(mask) != board.get(clue / w, clue % w)) {
+				continue;
+			}
+			boolean valid = (mask & others) == 0;
+			for (int index=0;index<w*h&&valid;index++) {
+				if ((mask & (1 << index)) == 0) {
+					continue;
+				}
+				valid = (index < w || (others & (1 << (index - w))) == 0) &&
+						(index + w >= w * h || (others & (1 << (index + w))) == 0) &&
+						(index % w == 0 || (others & (1 << (index - 1))) == 0) &&
+						(index % w == w - 1 || (others & (1 << (index + 1))) == 0);
+			}
+			if (valid && isConnected(mask, w, h)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Test
+	public void enumerate() {
+		Random random = new Random(8);
+		for (int k=0;k<PUZZLES;k++) {
+			Matrix puzzle = Puzzles.random(random, CELLS);
+			Islands islands = new Islands(puzzle.getW(), puzzle.getH(), LIMIT);
+			islands.enumerate(puzzle);
+
+			// 数字は左上から順に並ぶ
+			int clue = 0;
+			for (int index=0;index<puzzle.getW()*puzzle.getH();index++) {
+				if (!Puzzles.isNumber(puzzle.get(index / puzzle.getW(), index % puzzle.getW()))) {
+					continue;
+				}
+				assertEquals(puzzle.toString(), countPlacements(puzzle, index), islands.getCandidateCount(clue));
+				assertFalse(islands.isCapped(clue));
+				clue++;
+			}
+			assertEquals(clue, islands.getClueCount());
+		}
+	}
+	@Test
+	public void capped() {
+		// 上限を超えた数字は候補を持たず、候補がなくても行き詰まりとはみなさない
+		Matrix puzzle = Puzzles.parse("0000", "0400", "0000", "0000");
+		Islands islands = new Islands(4, 4, 3);
+		islands.enumerate(puzzle);
+
+		assertEquals(1, islands.getClueCount());
+		assertTrue(islands.isCapped(0));
+		assertEquals(0, islands.getCandidateCount(0));
+		assertFalse(islands.isDead());
+	}
+}
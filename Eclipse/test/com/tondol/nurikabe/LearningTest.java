@@ -0,0 +1,47 @@
+package com.tondol.nurikabe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LearningTest {
+	private static final int LIMIT = 1 << 16;
+
+	@Test
+	public void unique() {
+		// 学習で解を失っていた盤面
+		Matrix puzzle = Puzzles.parse("00000", "00000", "00000", "08030");
+		for (String strategy : Strategies.NAMES) {
+			for (int k=0;k<2;k++) {
+				Nurikabe nurikabe = new Nurikabe(puzzle.clone());
+				nurikabe.setStrategy(Strategies.get(strategy));
+				nurikabe.setLearning(true);
+				if (k > 0) {
+					nurikabe.setTranspositionTable(new TranspositionTable(1 << 12));
+				}
+				assertEquals(strategy, 1, nurikabe.countSolutions(LIMIT));
+			}
+		}
+	}
+	@Test
+	public void backjump() {
+		// 矛盾に関わらない選択を飛び越えて戻っても、解を失わない
+		for (Matrix puzzle : new Matrix[] {
+				Puzzles.parse("0400", "0000", "0000", "1000"),
+				Puzzles.parse("000", "000", "004")}) {
+			final int[] jumps = new int[1];
+			Nurikabe nurikabe = new Nurikabe(puzzle.clone());
+			nurikabe.setLearning(true);
+			nurikabe.addListener(new SearchAdapter() {
+				@Override
+				public void onBackjump(Nurikabe nurikabe, int from, int to) {
+					jumps[0]++;
+				}
+			});
+
+			assertEquals(puzzle.toString(), Puzzles.count(puzzle), nurikabe.countSolutions(LIMIT));
+			assertTrue(puzzle.toString(), jumps[0] > 0);
+		}
+	}
+}
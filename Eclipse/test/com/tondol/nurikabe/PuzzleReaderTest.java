@@ -0,0 +1,159 @@
+package com.tondol.nurikabe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+public class PuzzleReaderTest {
+	private static PuzzleReader reader(String text) throws IOException {
+		return new PuzzleReader(new ByteArrayInputStream(text.getBytes("US-ASCII")));
+	}
+
+	@Test
+	public void concatenated() throws IOException {
+		// 末尾に改行のないファイルを連結すると、見出しが前の問題の最終行に付く
+		final String text = "#2 2\r\n10\r\n00#2 3\r\n100\r\n002#1 1\n3";
+		PuzzleReader reader = reader(text);
+		assertEquals("1, 0\n0, 0", reader.read().toString());
+		assertEquals("1, 0, 0\n0, 0, 2", reader.read().toString());
+		assertEquals("3", reader.read().toString());
+		assertNull(reader.read());
+
+		BufferedReader br = new BufferedReader(new StringReader(text));
+		assertEquals("1, 0\n0, 0", Utils.readNurikabe(br).toString());
+		assertEquals("1, 0, 0\n0, 0, 2", Utils.readNurikabe(br).toString());
+		assertEquals("3", Utils.readNurikabe(br).toString());
+		assertNull(Utils.readNurikabe(br));
+	}
+	@Test
+	public void concatenatedDelimited() throws IOException {
+		final String text = "#2 5\n10,0,0,0,0\n0,0,0,0,0#1 2\n1,#";
+		PuzzleReader reader = reader(text);
+		assertEquals("10, 0, 0, 0, 0\n0, 0, 0, 0, 0", reader.read().toString());
+		assertEquals("1, " + Nurikabe.B, reader.read().toString());
+		assertNull(reader.read());
+
+		BufferedReader br = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(text.getBytes("US-ASCII"))));
+		assertEquals("10, 0, 0, 0, 0\n0, 0, 0, 0, 0", Utils.readNurikabe(br).toString());
+		assertEquals("1, " + Nurikabe.B, Utils.readNurikabe(br).toString());
+		assertNull(Utils.readNurikabe(br));
+	}
+	private static void assertRoundTrip(Matrix board, boolean delimited) throws IOException {
+		// 書き出した盤面を2つの読み込み方で読み戻す
+		final String text = "#" + board.getH() + " " + board.getW() + "\n" + new Nurikabe(board.clone()) + "\n";
+		assertEquals(text, delimited, text.indexOf(',') >= 0);
+		assertEquals(text, board.toString(), reader(text).read().toString());
+		assertEquals(text, board.toString(), Utils.readNurikabe(new BufferedReader(new StringReader(text))).toString());
+	}
+	private static void assertRejected(String text, String message) throws IOException {
+		try {
+			reader(text).read();
+			fail(text);
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("line 2: " + message));
+		}
+		try {
+			Utils.readNurikabe(new BufferedReader(new StringReader(text)));
+			fail(text);
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("row 1: " + message));
+		}
+	}
+
+	@Test
+	public void letters() throws IOException {
+		// 35 までの数字は36進の1文字で書き、大文字も読める
+		for (int value=10;value<=Utils.MAX_CELL_NUMBER;value++) {
+			Matrix board = new Matrix(6, 6);
+			board.put(0, 0, value);
+			board.put(5, 5, 1);
+			assertRoundTrip(board, false);
+		}
+		assertEquals("35, 10", reader("#1 2\nZa\n").read().toString());
+	}
+	@Test
+	public void delimited() throws IOException {
+		// 36 以上の数字があればカンマ区切りの行で書く
+		Matrix board = new Matrix(7, 7);
+		board.put(0, 0, 36);
+		board.put(3, 4, 10);
+		board.put(6, 6, 49);
+		assertRoundTrip(board, true);
+	}
+	@Test
+	public void invalidCells() throws IOException {
+		// 盤面のマスの数を超える数字はあふれる前に弾き、数でない複数文字のマスも弾く
+		assertRejected("#2 2\n12,0\n0,0\n", "cell '12' exceeds 4 cells");
+		assertRejected("#2 2\n99999999999,0\n0,0\n", "cell '99999999999' exceeds 4 cells");
+		assertRejected("#2 2\n 1,0\n0,0\n", "invalid cell ' 1'");
+		assertRejected("#2 2\n1a,0\n0,0\n", "invalid cell '1a'");
+	}
+	@Test
+	public void stringToValue() {
+		assertEquals(12, Utils.stringToValue("12"));
+		assertEquals(35, Utils.stringToValue("z"));
+		assertEquals(Nurikabe.E, Utils.stringToValue(""));
+		for (String s : new String[] {" 12", "1a", "99999999999"}) {
+			try {
+				Utils.stringToValue(s);
+				fail(s);
+			} catch (NumberFormatException e) {
+			}
+		}
+	}
+	@Test
+	public void blackCells() throws IOException {
+		// w マスに収まる '#' は黒マスとして読む
+		PuzzleReader reader = reader("#1 4\n1#2 3\n");
+		assertEquals("1, " + Nurikabe.B + ", 2, " + Nurikabe.W, reader.read().toString());
+		assertNull(reader.read());
+	}
+	@Test
+	public void invalidHeader() throws IOException {
+		PuzzleReader reader = reader("#1 1\n1\n\nx\n");
+		reader.read();
+		try {
+			reader.read();
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("line 4:"));
+		}
+
+		BufferedReader br = new BufferedReader(new StringReader("#1 1\n1\n\nx\n"));
+		Utils.readNurikabe(br);
+		try {
+			Utils.readNurikabe(br);
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().endsWith("'x'"));
+		}
+		assertNull(Utils.readNurikabe(br));
+	}
+	@Test
+	public void tooLarge() throws IOException {
+		// 配列を確保する前に、掛けてあふれる大きさや桁の多すぎる大きさを弾く
+		final String[] headers = {"#100000 100000", "#65536 65536", "#99999999999 1", "#4097 4097"};
+		for (String header : headers) {
+			try {
+				reader(header + "\n0\n").read();
+				fail(header);
+			} catch (IOException e) {
+				assertTrue(e.getMessage(), e.getMessage().startsWith("line 1:"));
+			}
+			try {
+				Utils.readNurikabe(new BufferedReader(new StringReader(header + "\n0\n")));
+				fail(header);
+			} catch (IOException e) {
+			}
+		}
+	}
+}
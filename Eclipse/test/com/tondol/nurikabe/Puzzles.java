@@ -0,0 +1,155 @@
+package com.tondol.nurikabe;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+class Puzzles {
+	private Puzzles() {
+	}
+
+	static public Matrix parse(String... rows) {
+		// 1文字1マス、0 が空白
+		Matrix board = new Matrix(rows[0].length(), rows.length);
+		for (int i=0;i<rows.length;i++) {
+			for (int j=0;j<rows[i].length();j++) {
+				board.put(i, j, Utils.stringToValue(rows[i].substring(j, j + 1)));
+			}
+		}
+		return board;
+	}
+	static public Matrix read(String name) throws IOException {
+		// 問題のファイルはリポジトリの直下にある
+		String dir = System.getProperty("nurikabe.dir", ".");
+		InputStream in = new FileInputStream(dir + "/" + name + ".txt");
+
+		try {
+			return Utils.readNurikabe(in);
+		} finally {
+			in.close();
+		}
+	}
+	static public boolean isNumber(int value) {
+		return value >= 1 && value != Nurikabe.B;
+	}
+	static public Matrix random(Random random, int maxCells) {
+		final int h = 2 + random.nextInt(3);
+		final int w = Math.max(2, Math.min(2 + random.nextInt(4), maxCells / h));
+		Matrix board = new Matrix(w, h);
+
+		// 数字は 1 から 3 個、重なったら上書きする
+		final int clues = 1 + random.nextInt(3);
+		for (int k=0;k<clues;k++) {
+			board.put(random.nextInt(h), random.nextInt(w), 1 + random.nextInt(4));
+		}
+		return board;
+	}
+
+	/**
+	 * Brute force
+	 */
+	private static int flood(boolean[] black, boolean color, boolean[] seen, int[] stack, int w, int start) {
+		// start と同じ色でつながったマスに印を付け、その数を返す
+		int size = 0;
+		int top = 0;
+		stack[top++] = start;
+		seen[start] = true;
+		while (top > 0) {
+			final int index = stack[--top];
+			final int i = index / w;
+			final int j = index % w;
+			size++;
+			for (int d=0;d<4;d++) {
+				final int ni = i + (d == 0 ? -1 : d == 1 ? 1 : 0);
+				final int nj = j + (d == 2 ? -1 : d == 3 ? 1 : 0);
+				final int next = ni * w + nj;
+				if (ni < 0 || nj < 0 || ni >= black.length / w || nj >= w ||
+						seen[next] || black[next] != color) {
+					continue;
+				}
+				seen[next] = true;
+				stack[top++] = next;
+			}
+		}
+		return size;
+	}
+	private static boolean isSolution(Matrix puzzle, boolean[] black) {
+		final int w = puzzle.getW();
+		final int h = puzzle.getH();
+		final int size = w * h;
+
+		// 2x2 の黒
+		for (int i=0;i+1<h;i++) {
+			for (int j=0;j+1<w;j++) {
+				if (black[i * w + j] && black[i * w + j + 1] &&
+						black[(i + 1) * w + j] && black[(i + 1) * w + j + 1]) {
+					return false;
+				}
+			}
+		}
+
+		// 黒はひとつながりで、少なくとも1マスある
+		boolean[] seen = new boolean[size];
+		int[] stack = new int[size];
+		boolean found = false;
+		for (int index=0;index<size;index++) {
+			if (black[index] && !seen[index]) {
+				if (found) {
+					return false;
+				}
+				flood(black, true, seen, stack, w, index);
+				found = true;
+			}
+		}
+		if (!found) {
+			return false;
+		}
+
+		// 白の島はそれぞれ数字をひとつだけ持ち、大きさが数字と等しい
+		for (int index=0;index<size;index++) {
+			if (black[index] || seen[index]) {
+				continue;
+			}
+			boolean[] island = seen.clone();
+			final int area = flood(black, false, seen, stack, w, index);
+			int clue = 0;
+			for (int k=0;k<size;k++) {
+				if (seen[k] && !island[k] && isNumber(puzzle.get(k / w, k % w))) {
+					if (clue != 0) {
+						return false;
+					}
+					clue = puzzle.get(k / w, k % w);
+				}
+			}
+			if (clue != area) {
+				return false;
+			}
+		}
+		return true;
+	}
+	static public int count(Matrix puzzle) {
+		final int w = puzzle.getW();
+		final int size = w * puzzle.getH();
+		int[] free = new int[size];
+		int n = 0;
+		for (int index=0;index<size;index++) {
+			if (puzzle.get(index / w, index % w) == Nurikabe.E) {
+				free[n++] = index;
+			}
+		}
+
+		// 空白マスの白黒をすべて試す
+		int count = 0;
+		boolean[] black = new boolean[size];
+		for (int mask=0;mask<(1 << n);mask++) {
+			for (int k=0;k<n;k++) {
+				black[free[k]] = (mask & (1 << k)) != 0;
+			}
+			if (isSolution(puzzle, black)) {
+				count++;
+			}
+		}
+		return count;
+	}
+}
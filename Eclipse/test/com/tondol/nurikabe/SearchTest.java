@@ -0,0 +1,14 @@
+package com.tondol.nurikabe;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class SearchTest {
+	@Test
+	public void brute() {
+		// 解がひとつの 4x5 と、数字が隣り合って解のない 2x2
+		assertEquals(1, Puzzles.count(Puzzles.parse("00000", "00000", "00000", "08030")));
+		assertEquals(0, Puzzles.count(Puzzles.parse("11", "00")));
+	}
+}
@@ -0,0 +1,183 @@
+package com.tondol.nurikabe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SolutionCacheTest {
+	@Rule
+	public TemporaryFolder mFolder = new TemporaryFolder();
+
+	private static Matrix puzzle() {
+		// 正方形でない、向きを変えると別の盤面になる問題
+		return Puzzles.parse("000", "000", "400", "003");
+	}
+	private static Matrix solve(Matrix puzzle) {
+		Nurikabe nurikabe = new Nurikabe(puzzle.clone());
+		assertEquals(1, nurikabe.countSolutions(2));
+		return nurikabe.getBoard();
+	}
+	private static Matrix transform(Matrix board, int t) {
+		// 転置してから上下、左右の順に裏返す
+		final boolean transpose = (t & 4) != 0;
+		final int h = transpose ? board.getW() : board.getH();
+		final int w = transpose ? board.getH() : board.getW();
+		Matrix result = new Matrix(w, h);
+		for (int i=0;i<h;i++) {
+			for (int j=0;j<w;j++) {
+				final int si = (t & 1) != 0 ? h - 1 - i : i;
+				final int sj = (t & 2) != 0 ? w - 1 - j : j;
+				result.put(i, j, transpose ? board.get(sj, si) : board.get(si, sj));
+			}
+		}
+		return result;
+	}
+
+	@Test
+	public void symmetry() {
+		final Matrix puzzle = puzzle();
+		final Matrix solution = solve(puzzle);
+
+		// どの向きで覚えても、どの向きで引いてもその向きの解が返る
+		for (int stored=0;stored<8;stored++) {
+			SolutionCache cache = new SolutionCache(4);
+			cache.put(transform(puzzle, stored), transform(solution, stored));
+			for (int t=0;t<8;t++) {
+				assertEquals(stored + "->" + t, transform(solution, t).toString(),
+						cache.get(transform(puzzle, t)).toString());
+			}
+			assertEquals(1, cache.size());
+			assertEquals(8, cache.getHitCount());
+		}
+	}
+	@Test
+	public void solveCached() {
+		final Matrix solution = solve(puzzle());
+		final int[] calls = new int[1];
+		SolutionCache cache = new SolutionCache(4);
+
+		// 初めての問題だけ解き、解く前の問題で覚える
+		for (int t=0;t<8;t++) {
+			final Matrix puzzle = transform(puzzle(), t);
+			SolveResult result = cache.solve(puzzle, new SolutionCache.Solver() {
+				@Override
+				public SolveResult solve() {
+					calls[0]++;
+					return new Nurikabe(puzzle).solve(0, TimeUnit.MILLISECONDS, 0);
+				}
+			});
+
+			assertTrue(result.isSolved());
+			assertEquals(t > 0, result.isCached());
+			assertEquals(transform(solution, t).toString(), result.getBoard().toString());
+		}
+		assertEquals(1, calls[0]);
+		assertEquals(1, cache.size());
+
+		// 解けなかった問題は覚えない
+		final Matrix unsolvable = Puzzles.parse("11", "00");
+		SolveResult result = cache.solve(unsolvable, new SolutionCache.Solver() {
+			@Override
+			public SolveResult solve() {
+				return new Nurikabe(unsolvable).solve(0, TimeUnit.MILLISECONDS, 0);
+			}
+		});
+		assertFalse(result.isSolved());
+		assertFalse(result.isCached());
+		assertEquals(1, cache.size());
+	}
+	@Test
+	public void inverse() {
+		// 8通りのどれも、逆の変換で元に戻る
+		final Matrix puzzle = puzzle();
+		for (int t=0;t<8;t++) {
+			int inverse = -1;
+			for (int u=0;u<8;u++) {
+				if (transform(transform(puzzle, t), u).toString().equals(puzzle.toString())) {
+					inverse = u;
+				}
+			}
+			assertTrue(String.valueOf(t), inverse >= 0);
+			assertEquals(puzzle.toString(), transform(transform(puzzle, t), inverse).toString());
+		}
+	}
+	@Test
+	public void miss() {
+		SolutionCache cache = new SolutionCache(4);
+		cache.put(puzzle(), solve(puzzle()));
+
+		// 数字がひとつ違えば別の問題
+		Matrix other = puzzle();
+		other.put(0, 0, 1);
+		assertNull(cache.get(other));
+		assertEquals(1, cache.getMissCount());
+	}
+	@Test
+	public void evict() {
+		SolutionCache cache = new SolutionCache(2);
+		Matrix[] puzzles = {Puzzles.parse("0200", "0000"), Puzzles.parse("0000", "2004"), Puzzles.parse("000", "003", "000", "000")};
+		cache.put(puzzles[0], solve(puzzles[0]));
+		cache.put(puzzles[1], solve(puzzles[1]));
+
+		// 最近引いたものは残り、最も古いものが捨てられる
+		cache.get(puzzles[0]);
+		cache.put(puzzles[2], solve(puzzles[2]));
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertNull(cache.get(puzzles[1]));
+		assertEquals(solve(puzzles[0]).toString(), cache.get(puzzles[0]).toString());
+	}
+	@Test
+	public void saveAndLoad() throws IOException {
+		final Matrix puzzle = puzzle();
+		final Matrix solution = solve(puzzle);
+		final Matrix small = Puzzles.parse("0000", "2004");
+		SolutionCache cache = new SolutionCache(4);
+		cache.put(transform(puzzle, 5), transform(solution, 5));
+		cache.put(small, solve(small));
+
+		File file = mFolder.newFile("cache.bin");
+		cache.save(file);
+		SolutionCache loaded = new SolutionCache(4);
+		loaded.load(file);
+
+		assertEquals(2, loaded.size());
+		for (int t=0;t<8;t++) {
+			assertEquals(transform(solution, t).toString(), loaded.get(transform(puzzle, t)).toString());
+		}
+		assertEquals(solve(small).toString(), loaded.get(small).toString());
+	}
+	@Test
+	public void broken() throws IOException {
+		File file = mFolder.newFile("broken.bin");
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+		try {
+			// 正しい見出しのあとに、掛けるとあふれる大きさ
+			out.writeInt(0x4e4b5331);
+			out.writeInt(1);
+			out.writeInt(100000);
+			out.writeInt(100000);
+			out.writeInt(0);
+		} finally {
+			out.close();
+		}
+
+		try {
+			new SolutionCache(4).load(file);
+			fail();
+		} catch (IOException e) {
+		}
+	}
+}
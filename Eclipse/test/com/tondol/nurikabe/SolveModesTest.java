@@ -0,0 +1,198 @@
+package com.tondol.nurikabe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class SolveModesTest {
+	private static final int PUZZLES = 300;
+	private static final int CELLS = 16;
+	private static final int LIMIT = 1 << 16;
+
+	private static List<Matrix> sPuzzles = null;
+	private static int[] sCounts = null;
+
+	private String mName = null;
+	private int mLimit = 0;
+	private Mode mMode = null;
+
+	public SolveModesTest(String name, int limit, Mode mode) {
+		mName = name;
+		mLimit = limit;
+		mMode = mode;
+	}
+
+	/**
+	 * Mode
+	 */
+	static abstract class Mode {
+		public Nurikabe create(Matrix puzzle) {
+			return new Nurikabe(puzzle);
+		}
+		// 上限までに見つけた解の数を返し、見つけたなら盤面をそのひとつにしておく
+		public abstract int solve(Nurikabe nurikabe, int limit) throws InterruptedException;
+	}
+	private static class Configured extends Mode {
+		private String mStrategy = null;
+		private boolean mLearning = false;
+		private boolean mTable = false;
+
+		public Configured(String strategy, boolean learning, boolean table) {
+			mStrategy = strategy;
+			mLearning = learning;
+			mTable = table;
+		}
+
+		@Override
+		public Nurikabe create(Matrix puzzle) {
+			Nurikabe nurikabe = new Nurikabe(puzzle);
+			nurikabe.setStrategy(Strategies.get(mStrategy));
+			nurikabe.setLearning(mLearning);
+			if (mTable) {
+				nurikabe.setTranspositionTable(new TranspositionTable(1 << 12));
+			}
+			return nurikabe;
+		}
+		@Override
+		public int solve(Nurikabe nurikabe, int limit) {
+			// 上限が 1 なら制限なしの予算付きで解き、そうでなければ解を数える
+			if (limit == 1) {
+				return nurikabe.solve(0, TimeUnit.MILLISECONDS, 0).getStatus() == SolveResult.SOLVED ? 1 : 0;
+			}
+			return nurikabe.countSolutions(limit);
+		}
+	}
+
+	private static class IslandLimited extends Mode {
+		private int mIslandLimit = 0;
+
+		public IslandLimited(int islandLimit) {
+			mIslandLimit = islandLimit;
+		}
+
+		@Override
+		public Nurikabe create(Matrix puzzle) {
+			Nurikabe nurikabe = new Nurikabe(puzzle);
+			nurikabe.setIslandLimit(mIslandLimit);
+			return nurikabe;
+		}
+		@Override
+		public int solve(Nurikabe nurikabe, int limit) {
+			if (limit == 1) {
+				return nurikabe.solve() ? 1 : 0;
+			}
+			return nurikabe.countSolutions(limit);
+		}
+	}
+
+	@Parameters(name = "{0}")
+	public static Collection<Object[]> modes() {
+		List<Object[]> modes = new ArrayList<Object[]>();
+		modes.add(new Object[] {"solve", 1, new Mode() {
+			@Override
+			public int solve(Nurikabe nurikabe, int limit) {
+				return nurikabe.solve() ? 1 : 0;
+			}
+		}});
+		modes.add(new Object[] {"solveInPlace", 1, new Mode() {
+			@Override
+			public int solve(Nurikabe nurikabe, int limit) {
+				return nurikabe.solveInPlace() ? 1 : 0;
+			}
+		}});
+		modes.add(new Object[] {"countSolutions", LIMIT, new Mode() {
+			@Override
+			public int solve(Nurikabe nurikabe, int limit) {
+				return nurikabe.countSolutions(limit);
+			}
+		}});
+		modes.add(new Object[] {"parallel", LIMIT, new Mode() {
+			@Override
+			public int solve(Nurikabe nurikabe, int limit) {
+				return nurikabe.countSolutions(limit, 4);
+			}
+		}});
+		modes.add(new Object[] {"solveDecomposed", 1, new Mode() {
+			@Override
+			public int solve(Nurikabe nurikabe, int limit) throws InterruptedException {
+				return nurikabe.solveDecomposed(2) ? 1 : 0;
+			}
+		}});
+		modes.add(new Object[] {"table", LIMIT, new Mode() {
+			@Override
+			public Nurikabe create(Matrix puzzle) {
+				Nurikabe nurikabe = new Nurikabe(puzzle);
+				nurikabe.setTranspositionTable(new TranspositionTable(1 << 12));
+				return nurikabe;
+			}
+			@Override
+			public int solve(Nurikabe nurikabe, int limit) {
+				return nurikabe.countSolutions(limit);
+			}
+		}});
+
+		// 島の置き方を並べ尽くす場合も、上限で打ち切る場合も解の数は変わらない
+		for (int islandLimit : new int[] {1 << 14, 2}) {
+			modes.add(new Object[] {"islands" + islandLimit, LIMIT, new IslandLimited(islandLimit)});
+			modes.add(new Object[] {"islands" + islandLimit + "/solve", 1, new IslandLimited(islandLimit)});
+		}
+
+		// 選び方ごとに、学習と置換表の有無を組み合わせる
+		for (String strategy : Strategies.NAMES) {
+			for (int k=0;k<4;k++) {
+				final boolean learning = (k & 1) != 0;
+				final boolean table = (k & 2) != 0;
+				final String name = strategy + (learning ? "+learning" : "") + (table ? "+table" : "");
+				modes.add(new Object[] {name, LIMIT, new Configured(strategy, learning, table)});
+				modes.add(new Object[] {name + "/budget", 1, new Configured(strategy, learning, table)});
+			}
+		}
+		return modes;
+	}
+
+	@BeforeClass
+	public static void setUpPuzzles() {
+		// 総当たりで数えた解の数をすべての解き方で使い回す
+		Random random = new Random(1);
+		sPuzzles = new ArrayList<Matrix>();
+		sCounts = new int[PUZZLES];
+		for (int k=0;k<PUZZLES;k++) {
+			Matrix puzzle = Puzzles.random(random, CELLS);
+			sPuzzles.add(puzzle);
+			sCounts[k] = Puzzles.count(puzzle);
+		}
+	}
+
+	@Test
+	public void bruteForce() throws InterruptedException {
+		for (int k=0;k<PUZZLES;k++) {
+			final Matrix puzzle = sPuzzles.get(k);
+			final String message = mName + "\n" + puzzle;
+			Nurikabe nurikabe = mMode.create(puzzle.clone());
+
+			assertEquals(message, Math.min(sCounts[k], mLimit), mMode.solve(nurikabe, mLimit));
+			if (sCounts[k] > 0) {
+				assertTrue(message, nurikabe.validate());
+				for (int i=0;i<puzzle.getH();i++) {
+					for (int j=0;j<puzzle.getW();j++) {
+						if (puzzle.get(i, j) != Nurikabe.E) {
+							assertEquals(message, puzzle.get(i, j), nurikabe.getBoard().get(i, j));
+						}
+					}
+				}
+			}
+		}
+	}
+}
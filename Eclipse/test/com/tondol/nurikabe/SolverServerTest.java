@@ -0,0 +1,105 @@
+package com.tondol.nurikabe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class SolverServerTest {
+	private static final String PUZZLE = "#2 3\n200\n001\n";
+
+	private SolverServer mServer = null;
+
+	@After
+	public void tearDown() {
+		if (mServer != null) {
+			mServer.stop();
+		}
+	}
+
+	private SolverServer start(Strategy strategy) throws IOException {
+		mServer = new SolverServer(0, 1);
+		mServer.setStrategy(strategy);
+		mServer.start();
+		return mServer;
+	}
+	private String[] request(String path, String body) throws IOException {
+		URL url = new URL("http://127.0.0.1:" + mServer.getPort() + path);
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		if (body != null) {
+			connection.setRequestMethod("POST");
+			connection.setDoOutput(true);
+			OutputStream out = connection.getOutputStream();
+			try {
+				out.write(body.getBytes("US-ASCII"));
+			} finally {
+				out.close();
+			}
+		}
+
+		// 失敗の応答も本文ごと読む
+		final int code = connection.getResponseCode();
+		InputStream in = code < 400 ? connection.getInputStream() : connection.getErrorStream();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			byte[] buffer = new byte[4096];
+			for (int n=in.read(buffer);n>=0;n=in.read(buffer)) {
+				bytes.write(buffer, 0, n);
+			}
+		} finally {
+			in.close();
+			connection.disconnect();
+		}
+		return new String[] {String.valueOf(code), bytes.toString("UTF-8")};
+	}
+
+	@Test
+	public void solve() throws IOException {
+		start(Strategies.TOP_LEFT);
+
+		String[] response = request("/solve", PUZZLE);
+		assertEquals("200", response[0]);
+		assertTrue(response[1], response[1].startsWith("FOUND:"));
+	}
+	@Test
+	public void badRequest() throws IOException {
+		start(Strategies.TOP_LEFT);
+
+		assertEquals("400", request("/solve", "hello\n")[0]);
+		assertTrue(request("/stats", null)[1].contains("errors=1"));
+	}
+	@Test
+	public void failure() throws IOException {
+		// 解いている途中で落ちたら 500 を返し、枠を返して次の問題も解ける
+		final boolean[] broken = {true};
+		start(new Strategy() {
+			@Override
+			public int selectCell(Nurikabe nurikabe) {
+				if (broken[0]) {
+					throw new IllegalStateException("broken strategy");
+				}
+				return Strategies.TOP_LEFT.selectCell(nurikabe);
+			}
+			@Override
+			public int selectValue(Nurikabe nurikabe, int i, int j) {
+				return Strategies.TOP_LEFT.selectValue(nurikabe, i, j);
+			}
+		});
+
+		String[] response = request("/solve", PUZZLE);
+		assertEquals("500", response[0]);
+		assertTrue(response[1], response[1].contains("broken strategy"));
+		assertTrue(request("/stats", null)[1].contains("errors=1"));
+
+		broken[0] = false;
+		assertEquals("200", request("/solve", PUZZLE)[0]);
+	}
+}
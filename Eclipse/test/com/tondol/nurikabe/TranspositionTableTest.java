@@ -0,0 +1,74 @@
+package com.tondol.nurikabe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TranspositionTableTest {
+	private static final int PUZZLES = 300;
+	private static final int LIMIT = 1 << 16;
+
+	@Test
+	public void table() {
+		TranspositionTable table = new TranspositionTable(4);
+		assertFalse(table.contains(1));
+
+		table.store(1, 3);
+		assertTrue(table.contains(1));
+		assertEquals(1, table.getHitCount());
+		assertEquals(1, table.getMissCount());
+
+		table.clear();
+		assertFalse(table.contains(1));
+	}
+	@Test
+	public void hit() {
+		// 1回の探索では同じ局面に戻らないので、同じ問題をもう一度解いて表に当てる
+		for (Matrix puzzle : new Matrix[] {
+				Puzzles.parse("00000", "00000", "00000", "08030"),
+				Puzzles.parse("0000", "0000", "3002")}) {
+			final int count = Puzzles.count(puzzle);
+			TranspositionTable table = new TranspositionTable(1 << 12);
+			for (int k=0;k<2;k++) {
+				Nurikabe nurikabe = new Nurikabe(puzzle.clone());
+				nurikabe.setTranspositionTable(table);
+				assertEquals(puzzle.toString(), count, nurikabe.countSolutions(LIMIT));
+				assertEquals(puzzle.toString(), k > 0, table.getHitCount() > 0);
+			}
+		}
+	}
+	@Test
+	public void shared() {
+		// 同じ大きさの別の問題で表を使い回しても、ほかの問題で行き詰まった局面で枝を刈らない
+		TranspositionTable table = new TranspositionTable(1 << 16);
+		Random random = new Random(7);
+		for (int k=0;k<PUZZLES;k++) {
+			Matrix puzzle = new Matrix(4, 3);
+			final int clues = 1 + random.nextInt(3);
+			for (int c=0;c<clues;c++) {
+				puzzle.put(random.nextInt(3), random.nextInt(4), 1 + random.nextInt(4));
+			}
+			Nurikabe nurikabe = new Nurikabe(puzzle.clone());
+			nurikabe.setTranspositionTable(table);
+
+			assertEquals(puzzle.toString(), Puzzles.count(puzzle), nurikabe.countSolutions(LIMIT));
+		}
+	}
+	@Test
+	public void zobrist() {
+		// 数字の配置が違えば、塗り方が同じでも鍵が違う
+		Matrix a = Puzzles.parse("1000", "0000", "0002");
+		Matrix b = Puzzles.parse("2000", "0000", "0001");
+		Matrix c = Puzzles.parse("1000", "0000", "0002");
+		a.put(1, 1, Nurikabe.B);
+		b.put(1, 1, Nurikabe.B);
+		c.put(1, 1, Nurikabe.B);
+
+		assertFalse(new Zobrist(a).hash(a) == new Zobrist(b).hash(b));
+		assertEquals(new Zobrist(a).hash(a), new Zobrist(c).hash(c));
+	}
+}